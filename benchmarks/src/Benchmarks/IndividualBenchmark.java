@@ -0,0 +1,99 @@
+package Benchmarks;
+
+import GeneticAlgorithm.Chromosome;
+import GeneticAlgorithm.Individual;
+import GeneticAlgorithm.Problem;
+import GeneticAlgorithm.Workspace;
+import Utils.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fitness evaluation, crossover and mutations of Individual
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndividualBenchmark {
+
+    @Param({"p01", "p02", "p03", "p04", "p05", "p06", "p07", "p08", "p09", "p10", "p11", "p12",
+            "p13", "p14", "p15", "p16", "p17", "p18", "p19", "p20", "p21", "p22", "p23"})
+    public String map;
+
+    private Individual individual;
+    private Individual child; // Reused target of the operators, as the offspring slots of Population
+    private Workspace workspace;
+    private Chromosome partner;
+    private int segmentFrom; // Part of a route of partner, as used by Population.crossOver
+    private int segmentTo;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Problem problem = Instances.loadProblem(map);
+        individual = Instances.createIndividual(problem);
+
+        child = individual.copy();
+        workspace = new Workspace(problem, 3, null, null);
+
+        partner = Instances.createIndividual(problem).getChromosome();
+        int longestRoute = 0;
+        for (int route = 1; route < partner.getRoutesCount(); route++) {
+            if (partner.getRouteSize(route) > partner.getRouteSize(longestRoute)) {
+                longestRoute = route;
+            }
+        }
+        int[] partitionIndices = new int[4];
+        Utils.splitRoute(partner.getRouteSize(longestRoute), 3, partitionIndices);
+        segmentFrom = partner.getRouteStart(longestRoute) + partitionIndices[1];
+        segmentTo = partner.getRouteStart(longestRoute) + partitionIndices[2];
+    }
+
+    @Benchmark
+    public double calculateFitness() {
+        individual.calculateFitness();
+        return individual.getFitness();
+    }
+
+    @Benchmark
+    public double singlePointCrossOver() {
+        individual.singlePointCrossOver(partner, segmentFrom, segmentTo, child, workspace);
+        return child.getFitness();
+    }
+
+    @Benchmark
+    public double swapMutation() {
+        child.copyFrom(individual); // Mutations work in place, so every call starts from the same Individual
+        child.swapMutation();
+        return child.getFitness();
+    }
+
+    @Benchmark
+    public double swapMutation2() {
+        child.copyFrom(individual);
+        child.swapMutation2();
+        return child.getFitness();
+    }
+
+    @Benchmark
+    public double crossMutation() {
+        child.copyFrom(individual);
+        child.crossMutation(workspace.getScratchChromosome());
+        return child.getFitness();
+    }
+}
@@ -0,0 +1,42 @@
+package Benchmarks;
+
+import GeneticAlgorithm.Individual;
+import GeneticAlgorithm.Parameters;
+import GeneticAlgorithm.Problem;
+import Map.Map;
+
+import java.io.IOException;
+
+/**
+ * Loads the bundled map instances and creates Individuals for the benchmarks
+ */
+class Instances {
+    static Map loadMap(String mapName) throws IOException {
+        return new Map(mapName);
+    }
+
+    static Problem loadProblem(String mapName) throws IOException {
+        return new Problem(loadMap(mapName).getDepots());
+    }
+
+    /**
+     * Creates an Individual the same way as the initial population does
+     * @param problem
+     * @return
+     */
+    static Individual createIndividual(Problem problem) {
+        Parameters parameters = new Parameters();
+        int triesLeft = 1000;
+
+        while (true) {
+            Individual individual = new Individual(problem, parameters.getDurationPenaltyRate(), parameters.getLoadPenaltyRate());
+
+            if (individual.generateOptimizedIndividual2(triesLeft <= 0)) {
+                individual.calculateFitness();
+                return individual;
+            }
+
+            triesLeft--;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package Benchmarks;
+
+import GeneticAlgorithm.Metrics;
+import GeneticAlgorithm.Parameters;
+import GeneticAlgorithm.Population;
+import Map.Map;
+import Utils.Rng;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One generation of a Population with the default Parameters
+ * Every iteration starts from a new initial population
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PopulationBenchmark {
+
+    @Param({"p01", "p02", "p03", "p04", "p05", "p06", "p07", "p08", "p09", "p10", "p11", "p12",
+            "p13", "p14", "p15", "p16", "p17", "p18", "p19", "p20", "p21", "p22", "p23"})
+    public String map;
+
+    private Map loadedMap;
+    private Population population;
+
+    @Setup(Level.Trial)
+    public void loadMap() throws IOException {
+        loadedMap = Instances.loadMap(map);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Parameters parameters = new Parameters();
+        population = new Population(loadedMap.getDepots(), parameters,
+                parameters.isMetrics() ? new Metrics() : null, new Rng(parameters.getSeed()));
+        population.tick(); // Initial population
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        population.shutdown();
+    }
+
+    @Benchmark
+    public double tick() {
+        population.tick();
+        return population.getAlphaFitness();
+    }
+}
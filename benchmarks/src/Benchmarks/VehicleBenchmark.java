@@ -0,0 +1,67 @@
+package Benchmarks;
+
+import GeneticAlgorithm.Problem;
+import MapObjects.Customer;
+import MapObjects.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insertion cost of a customer in the longest route of an Individual
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VehicleBenchmark {
+
+    @Param({"p01", "p02", "p03", "p04", "p05", "p06", "p07", "p08", "p09", "p10", "p11", "p12",
+            "p13", "p14", "p15", "p16", "p17", "p18", "p19", "p20", "p21", "p22", "p23"})
+    public String map;
+
+    private Vehicle vehicle;
+    private Customer customer; // Customer from another route
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Problem problem = Instances.loadProblem(map);
+        List<Vehicle> vehicles = Instances.createIndividual(problem).getVehicles();
+
+        Vehicle otherVehicle = null;
+        for (Vehicle candidate : vehicles) {
+            if (vehicle == null || candidate.getRoute().size() > vehicle.getRoute().size()) {
+                if (vehicle != null) {
+                    otherVehicle = vehicle;
+                }
+                vehicle = candidate;
+            } else if (candidate.getRoute().size() > 0) {
+                otherVehicle = candidate;
+            }
+        }
+
+        customer = otherVehicle.getRoute().get(0);
+        index = vehicle.getRoute().size() / 2;
+    }
+
+    @Benchmark
+    public double calculateRouteDurationIfCustomerAdded() {
+        return vehicle.calculateRouteDurationIfCustomerAdded(index, customer);
+    }
+}
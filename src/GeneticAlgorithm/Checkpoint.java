@@ -0,0 +1,182 @@
+package GeneticAlgorithm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checkpoints of a GeneticAlgorithm in a compact binary file, and resuming a run from one
+ * save() serializes the state on the solver thread, which is cheap next to a generation, and a background thread writes the file.
+ * The file is written next to path and then moved over it, so a crash during a write keeps the previous checkpoint.
+ * While a write is still running, new checkpoints are skipped instead of queued
+ *
+ * Format, big-endian: magic 0x4D44434B, version 1, then GeneticAlgorithm.writeState()
+ */
+public class Checkpoint {
+    private static final int MAGIC = 0x4D44434B; // "MDCK"
+    private static final int VERSION = 1;
+
+    private final Path path;
+    private final Path temporaryPath; // Written first, then moved to path
+    private final ExecutorService writer; // Single background thread writing the files
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(); // Reused by every snapshot
+    private Future<?> pendingWrite;
+
+    private int snapshots; // Checkpoints taken by save()
+    private int skipped; // Checkpoints skipped since the previous write was still running
+    private long snapshotNanos; // Time spent in save() on the solver thread
+    private long bytes; // Size of the last checkpoint
+    private volatile int written; // Checkpoint files written, only updated by the writer thread
+    private volatile long writeNanos; // Time spent writing files, only updated by the writer thread
+
+    /**
+     * @param path File the checkpoints are written to, replaced by every checkpoint
+     */
+    public Checkpoint(Path path) {
+        this.path = path;
+        this.temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Takes a checkpoint of ga and writes it in the background. Must not run concurrently with ga.tick()
+     * @param ga
+     * @throws IOException If the state can not be serialized, or the previous write failed
+     */
+    public void save(GeneticAlgorithm ga) throws IOException {
+        if (pendingWrite != null) {
+            if (!pendingWrite.isDone()) {
+                skipped++;
+                return;
+            }
+            finishPendingWrite();
+        }
+
+        long startNanoTime = System.nanoTime();
+
+        buffer.reset();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        ga.writeState(out);
+        out.flush();
+        byte[] state = buffer.toByteArray();
+
+        snapshotNanos += System.nanoTime() - startNanoTime;
+        snapshots++;
+        bytes = state.length;
+
+        pendingWrite = writer.submit(() -> {
+            long writeStartNanoTime = System.nanoTime();
+            Files.write(temporaryPath, state);
+            try {
+                Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            writeNanos += System.nanoTime() - writeStartNanoTime;
+            written++;
+            return null;
+        });
+    }
+
+    /**
+     * Restores the state of ga from a checkpoint file
+     * ga must be created with the same Map and parameters as the run that wrote the checkpoint
+     *
+     * @param ga
+     * @param path
+     * @throws IOException If the file is not a checkpoint or does not fit ga
+     */
+    public static void restore(GeneticAlgorithm ga, Path path) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(path)));
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException(path + " is not a checkpoint");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version + " in " + path);
+        }
+
+        ga.readState(in);
+
+        if (in.available() != 0) {
+            throw new IOException("Unexpected data at the end of " + path);
+        }
+    }
+
+    /**
+     * Waits for the last write and stops the writer thread
+     * @throws IOException If the last write failed
+     */
+    public void close() throws IOException {
+        writer.shutdown();
+        if (pendingWrite != null) {
+            finishPendingWrite();
+        }
+    }
+
+    private void finishPendingWrite() throws IOException {
+        try {
+            pendingWrite.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IOException("Writing checkpoint " + path + " failed", e.getCause());
+        } finally {
+            pendingWrite = null;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return Checkpoint files written so far
+     */
+    public int getWritten() {
+        return written;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return Average milliseconds a checkpoint blocks the solver thread
+     */
+    public double getAverageSnapshotMillis() {
+        return snapshots == 0 ? 0.0 : snapshotNanos / 1000000.0 / snapshots;
+    }
+
+    /**
+     * @return Average milliseconds the background thread spends writing a checkpoint file
+     */
+    public double getAverageWriteMillis() {
+        int count = written;
+        return count == 0 ? 0.0 : writeNanos / 1000000.0 / count;
+    }
+
+    /**
+     * @return Size of the last checkpoint
+     */
+    public long getBytes() {
+        return bytes;
+    }
+}
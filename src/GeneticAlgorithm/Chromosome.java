@@ -0,0 +1,425 @@
+package GeneticAlgorithm;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compact encoding of an Individual
+ * All routes are stored back to back in one giant tour of customer indices (DistanceMatrix indices)
+ * Route r is tour[routeStart[r]] .. tour[routeStart[r + 1] - 1]
+ * Each route has a start depot and an end depot (depot indices)
+ *
+ * Every route has a Zobrist style hash: the sum of a random key per directed edge (depots included) plus a key for the start depot,
+ * 0 for an empty route. The directed edges from a start depot give exactly one visiting order,
+ * so routes with the same hash have the same cost, down to the rounding of the duration.
+ * The hash of the Chromosome is the sum of its route hashes.
+ * A route hash is computed when first asked for after the route was written, and then updated incrementally
+ * by remove(), insert(), swap() and setEndDepot(), so building a Chromosome costs nothing extra when hashes are not used
+ */
+public class Chromosome {
+    private final int[] tour; // Customer indices of all routes
+    private final int[] routeStart; // routeStart[r]: first position of route r in tour, routeStart[routes] = tour.length
+    private final int[] startDepot; // Start depot index per route
+    private final int[] endDepot; // End depot index per route
+    private final long[] routeHash; // Hash per route, see getRouteHash()
+    private final boolean[] routeHashValid; // False when the route was written since its hash was computed
+
+    private int cursor; // Next position to write in tour, used when building a Chromosome route by route
+
+    /**
+     * Creates an empty Chromosome, filled with beginRoute(), add() and endRoutes()
+     * @param customers number of customers in tour
+     * @param routes number of routes
+     */
+    public Chromosome(int customers, int routes) {
+        this.tour = new int[customers];
+        this.routeStart = new int[routes + 1];
+        this.startDepot = new int[routes];
+        this.endDepot = new int[routes];
+        this.routeHash = new long[routes];
+        this.routeHashValid = new boolean[routes];
+    }
+
+    private Chromosome(Chromosome other) {
+        this.tour = other.tour.clone();
+        this.routeStart = other.routeStart.clone();
+        this.startDepot = other.startDepot.clone();
+        this.endDepot = other.endDepot.clone();
+        this.routeHash = other.routeHash.clone();
+        this.routeHashValid = other.routeHashValid.clone();
+        this.cursor = other.cursor;
+    }
+
+    public Chromosome copy() {
+        return new Chromosome(this);
+    }
+
+    /**
+     * Overwrites this Chromosome with other, which must have the same number of customers and routes
+     * @param other
+     */
+    public void copyFrom(Chromosome other) {
+        System.arraycopy(other.tour, 0, tour, 0, tour.length);
+        System.arraycopy(other.routeStart, 0, routeStart, 0, routeStart.length);
+        System.arraycopy(other.startDepot, 0, startDepot, 0, startDepot.length);
+        System.arraycopy(other.endDepot, 0, endDepot, 0, endDepot.length);
+        System.arraycopy(other.routeHash, 0, routeHash, 0, routeHash.length);
+        System.arraycopy(other.routeHashValid, 0, routeHashValid, 0, routeHashValid.length);
+        cursor = other.cursor;
+    }
+
+    /**
+     * Starts rewriting this Chromosome with beginRoute(), add() and endRoutes()
+     */
+    public void clear() {
+        cursor = 0;
+    }
+
+    /**
+     * Starts writing route. Routes must be written in order
+     * @param route
+     * @param startDepot
+     * @param endDepot
+     */
+    public void beginRoute(int route, int startDepot, int endDepot) {
+        this.routeStart[route] = cursor;
+        this.startDepot[route] = startDepot;
+        this.endDepot[route] = endDepot;
+        this.routeHashValid[route] = false;
+    }
+
+    /**
+     * Appends customer to the route currently being written
+     * @param customer
+     */
+    public void add(int customer) {
+        tour[cursor++] = customer;
+    }
+
+    /**
+     * Closes the last route
+     */
+    public void endRoutes() {
+        routeStart[routeStart.length - 1] = cursor;
+    }
+
+    /**
+     * Removes the customer at position from its route
+     * The last position of tour is unused until a customer is inserted again
+     * @param position
+     */
+    public void remove(int position) {
+        int route = getRoute(position);
+        if (!routeHashValid[route]) {
+            // Computed when asked for
+        } else if (getRouteSize(route) == 1) {
+            routeHash[route] = 0;
+        } else {
+            int previous = getPrevious(route, position);
+            int next = getNext(route, position);
+            routeHash[route] += edgeKey(previous, next) - edgeKey(previous, tour[position]) - edgeKey(tour[position], next);
+        }
+
+        System.arraycopy(tour, position + 1, tour, position, tour.length - position - 1);
+
+        for (int r = route + 1; r < routeStart.length; r++) {
+            routeStart[r]--;
+        }
+    }
+
+    /**
+     * Inserts customer at index in route. Must follow a remove()
+     * @param route
+     * @param index
+     * @param customer
+     */
+    public void insert(int route, int index, int customer) {
+        int position = routeStart[route] + index;
+        if (!routeHashValid[route]) {
+            // Computed when asked for
+        } else if (getRouteSize(route) == 0) {
+            routeHash[route] = edgeKey(startDepot[route], customer) + edgeKey(customer, endDepot[route]) + depotKey(startDepot[route]);
+        } else {
+            int previous = getPrevious(route, position);
+            int next = position == routeStart[route + 1] ? endDepot[route] : tour[position];
+            routeHash[route] += edgeKey(previous, customer) + edgeKey(customer, next) - edgeKey(previous, next);
+        }
+
+        System.arraycopy(tour, position, tour, position + 1, tour.length - position - 1);
+        tour[position] = customer;
+
+        for (int r = route + 1; r < routeStart.length; r++) {
+            routeStart[r]++;
+        }
+    }
+
+    /**
+     * Swaps the customers at two positions, in the same route or in different routes
+     * @param positionA
+     * @param positionB
+     */
+    public void swap(int positionA, int positionB) {
+        int routeA = getRoute(positionA);
+        int routeB = getRoute(positionB);
+
+        if (!routeHashValid[routeA] || !routeHashValid[routeB]) {
+            routeHashValid[routeA] = false;
+            routeHashValid[routeB] = false;
+            swapCustomers(positionA, positionB);
+        } else if (routeA == routeB && Math.abs(positionA - positionB) == 1) { // The edge between A and B is reversed
+            int first = Math.min(positionA, positionB);
+            long oldEdges = getEdgeKeys(routeA, first) + edgeKey(tour[first + 1], getNext(routeA, first + 1));
+            swapCustomers(positionA, positionB);
+            routeHash[routeA] += getEdgeKeys(routeA, first) + edgeKey(tour[first + 1], getNext(routeA, first + 1)) - oldEdges;
+        } else {
+            long oldEdgesA = getEdgeKeys(routeA, positionA);
+            long oldEdgesB = getEdgeKeys(routeB, positionB);
+            swapCustomers(positionA, positionB);
+            routeHash[routeA] += getEdgeKeys(routeA, positionA) - oldEdgesA;
+            routeHash[routeB] += getEdgeKeys(routeB, positionB) - oldEdgesB;
+        }
+    }
+
+    private void swapCustomers(int positionA, int positionB) {
+        int customer = tour[positionA];
+        tour[positionA] = tour[positionB];
+        tour[positionB] = customer;
+    }
+
+    /**
+     * @return Sum of the keys of the two edges of the customer at position
+     */
+    private long getEdgeKeys(int route, int position) {
+        return edgeKey(getPrevious(route, position), tour[position]) + edgeKey(tour[position], getNext(route, position));
+    }
+
+    /**
+     * @return Customer or start depot before position in route
+     */
+    private int getPrevious(int route, int position) {
+        return position == routeStart[route] ? startDepot[route] : tour[position - 1];
+    }
+
+    /**
+     * @return Customer or end depot after position in route
+     */
+    private int getNext(int route, int position) {
+        return position == routeStart[route + 1] - 1 ? endDepot[route] : tour[position + 1];
+    }
+
+    /**
+     * Zobrist key of the edge from one map index to another
+     * The pair is packed into one long and scrambled by a full SplitMix64 step. A bijection only keeps single keys apart,
+     * but hashes compare sums of keys, so the mixer must also leave no linear structure, e.g. between the keys of
+     * a tail exchange (p, q), (s, t) -> (p, t), (s, q)
+     */
+    private static long edgeKey(int from, int to) {
+        return mix(((long) from << 32) | to);
+    }
+
+    private static long depotKey(int depot) {
+        return mix(~(long) depot); // Packed edges never have all high bits set, so depot keys differ from edge keys
+    }
+
+    /**
+     * SplitMix64 output for state x: golden ratio increment, then the finalizer
+     */
+    private static long mix(long x) {
+        x += 0x9E3779B97F4A7C15L;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /**
+     * @param position
+     * @return Route containing position
+     */
+    public int getRoute(int position) {
+        int route = 0;
+        while (routeStart[route + 1] <= position) {
+            route++;
+        }
+        return route;
+    }
+
+    /**
+     * @param route
+     * @return Copy of the customer indices in route
+     */
+    public int[] copyRoute(int route) {
+        return Arrays.copyOfRange(tour, routeStart[route], routeStart[route + 1]);
+    }
+
+    /**
+     * Broken pairs distance: share of the adjacent pairs of this Chromosome that are not adjacent in other
+     * Pairs are unordered, the first and last customer of a route form a pair with the depot
+     *
+     * @param other Chromosome with the same customers
+     * @param neighbours Scratch memory of 2 * (depots + customers), overwritten
+     * @return 0 for the same routes, up to 1 when no pair is kept
+     */
+    public double getBrokenPairsDistance(Chromosome other, int[] neighbours) {
+        for (int route = 0; route < other.getRoutesCount(); route++) { // Previous and next customer in other, -1 for a depot
+            for (int i = other.routeStart[route]; i < other.routeStart[route + 1]; i++) {
+                int customer = other.tour[i];
+                neighbours[2 * customer] = i == other.routeStart[route] ? -1 : other.tour[i - 1];
+                neighbours[2 * customer + 1] = i == other.routeStart[route + 1] - 1 ? -1 : other.tour[i + 1];
+            }
+        }
+
+        int pairs = 0;
+        int broken = 0;
+
+        for (int route = 0; route < getRoutesCount(); route++) {
+            if (getRouteSize(route) == 0) {
+                continue;
+            }
+
+            int previous = -1;
+            for (int i = routeStart[route]; i <= routeStart[route + 1]; i++) {
+                int customer = i == routeStart[route + 1] ? -1 : tour[i];
+                int from = customer == -1 ? previous : customer; // Customer side of the pair, the other side may be a depot
+                int to = customer == -1 ? -1 : previous;
+
+                if (neighbours[2 * from] != to && neighbours[2 * from + 1] != to) {
+                    broken++;
+                }
+
+                pairs++;
+                previous = customer;
+            }
+        }
+
+        return pairs == 0 ? 0.0 : (double) broken / pairs;
+    }
+
+    public int getCustomer(int position) {
+        return tour[position];
+    }
+
+    public int getRouteStart(int route) {
+        return routeStart[route];
+    }
+
+    public int getRouteEnd(int route) {
+        return routeStart[route + 1];
+    }
+
+    public int getRouteSize(int route) {
+        return routeStart[route + 1] - routeStart[route];
+    }
+
+    public int getRoutesCount() {
+        return startDepot.length;
+    }
+
+    public int getCustomersCount() {
+        return tour.length;
+    }
+
+    public int getStartDepot(int route) {
+        return startDepot[route];
+    }
+
+    public int getEndDepot(int route) {
+        return endDepot[route];
+    }
+
+    public void setEndDepot(int route, int depot) {
+        if (routeHashValid[route] && getRouteSize(route) > 0) {
+            int last = tour[routeStart[route + 1] - 1];
+            routeHash[route] += edgeKey(last, depot) - edgeKey(last, endDepot[route]);
+        }
+        endDepot[route] = depot;
+    }
+
+    /**
+     * @param route
+     * @return Hash of route, equal for routes with the same customers in the same order from the same depots, 0 for an empty route
+     */
+    public long getRouteHash(int route) {
+        if (!routeHashValid[route]) {
+            long newHash = 0;
+
+            if (getRouteSize(route) > 0) {
+                int previous = startDepot[route];
+                for (int i = routeStart[route]; i < routeStart[route + 1]; i++) {
+                    newHash += edgeKey(previous, tour[i]);
+                    previous = tour[i];
+                }
+                newHash += edgeKey(previous, endDepot[route]) + depotKey(startDepot[route]);
+            }
+
+            routeHash[route] = newHash;
+            routeHashValid[route] = true;
+        }
+
+        return routeHash[route];
+    }
+
+    /**
+     * Takes over the hash of a route known to be identical, so it is not computed again
+     * @param route
+     * @param other Chromosome with the same customers in route
+     */
+    public void copyRouteHash(int route, Chromosome other) {
+        routeHash[route] = other.routeHash[route];
+        routeHashValid[route] = other.routeHashValid[route];
+    }
+
+    /**
+     * @return Hash of all routes, equal for Chromosomes with the same routes in any order
+     */
+    public long getHash() {
+        long hash = 0;
+        for (int route = 0; route < routeHash.length; route++) {
+            hash += getRouteHash(route);
+        }
+        return hash;
+    }
+
+    /**
+     * Writes the routes as start depot, end depot, size and customers, read back with read()
+     * @param out
+     * @throws IOException
+     */
+    public void write(DataOutput out) throws IOException {
+        for (int route = 0; route < startDepot.length; route++) {
+            out.writeInt(startDepot[route]);
+            out.writeInt(endDepot[route]);
+            out.writeInt(getRouteSize(route));
+            for (int i = routeStart[route]; i < routeStart[route + 1]; i++) {
+                out.writeInt(tour[i]);
+            }
+        }
+    }
+
+    /**
+     * Overwrites this Chromosome with routes written by write() from a Chromosome of the same size
+     * @param in
+     * @throws IOException If the routes do not fit this Chromosome
+     */
+    public void read(DataInput in) throws IOException {
+        clear();
+
+        for (int route = 0; route < startDepot.length; route++) {
+            beginRoute(route, in.readInt(), in.readInt());
+            int size = in.readInt();
+            if (size < 0 || size > tour.length - cursor) {
+                throw new IOException("Route " + route + " does not fit the Chromosome");
+            }
+
+            for (int i = 0; i < size; i++) {
+                add(in.readInt());
+            }
+        }
+
+        if (cursor != tour.length) {
+            throw new IOException("Chromosome has " + cursor + " customers, expected " + tour.length);
+        }
+        endRoutes();
+    }
+}
@@ -0,0 +1,103 @@
+package GeneticAlgorithm;
+
+/**
+ * Bounded cache of route duration and load, keyed by the route hash of Chromosome
+ * Set associative: a hash selects a set of WAYS entries, a full set evicts with CLOCK (second chance)
+ * Preallocated, so lookups and inserts do not allocate
+ * Not thread safe, every breeding thread has its own FitnessCache, see Problem.getFitnessCache()
+ */
+public class FitnessCache {
+    private static final int WAYS = 4;
+
+    private final long[] keys; // Route hash per entry, 0 is an empty entry (empty routes are never cached)
+    private final double[] durations;
+    private final int[] loads;
+    private final boolean[] referenced; // Set on every hit, cleared when the CLOCK hand passes
+    private final byte[] hands; // CLOCK hand per set
+    private final int setMask;
+
+    private double duration; // Result of the last successful get()
+    private int load;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity Maximum number of routes, rounded up to a power of two
+     */
+    public FitnessCache(int capacity) {
+        int sets = Integer.highestOneBit(Math.max(capacity / WAYS - 1, 1)) << 1;
+        this.keys = new long[sets * WAYS];
+        this.durations = new double[sets * WAYS];
+        this.loads = new int[sets * WAYS];
+        this.referenced = new boolean[sets * WAYS];
+        this.hands = new byte[sets];
+        this.setMask = sets - 1;
+    }
+
+    /**
+     * Looks up a route, the result is read with getDuration() and getLoad()
+     * @param routeHash
+     * @return True if the route is cached
+     */
+    public boolean get(long routeHash) {
+        int first = getSet(routeHash) * WAYS;
+
+        for (int i = first; i < first + WAYS; i++) {
+            if (keys[i] == routeHash) {
+                referenced[i] = true;
+                duration = durations[i];
+                load = loads[i];
+                hits++;
+                return true;
+            }
+        }
+
+        misses++;
+        return false;
+    }
+
+    /**
+     * Caches a route after a missed get()
+     * @param routeHash
+     * @param duration
+     * @param load
+     */
+    public void put(long routeHash, double duration, int load) {
+        int set = getSet(routeHash);
+        int first = set * WAYS;
+        int hand = hands[set];
+
+        while (keys[first + hand] != 0 && referenced[first + hand]) { // Second chance, at most one round
+            referenced[first + hand] = false;
+            hand = (hand + 1) % WAYS;
+        }
+
+        int entry = first + hand;
+        keys[entry] = routeHash;
+        durations[entry] = duration;
+        loads[entry] = load;
+        referenced[entry] = false;
+        hands[set] = (byte) ((hand + 1) % WAYS);
+    }
+
+    private int getSet(long routeHash) {
+        return (int) (routeHash ^ (routeHash >>> 32)) & setMask;
+    }
+
+    public double getDuration() {
+        return duration;
+    }
+
+    public int getLoad() {
+        return load;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -1,80 +1,129 @@
 package GeneticAlgorithm;
 
 import MapObjects.Depot;
-import MapObjects.Vehicle;
-import javafx.scene.canvas.GraphicsContext;
+import Utils.Rng;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Main method for GeneticAlgorithm
  * GeneticAlgorithm contains one Population.
  * Population contains n Solutions. n = populationSize
- * Sends all necessary data about GA/population to Controller
+ * Sends all necessary data about GA/population to the Solver and the GUI
  */
 public class GeneticAlgorithm {
 
-    // Parameters
-    private final int populationSize = 70; // 20-100 dependent on problem
-    private final double crossOverRate = 0.8; // 80%-95%
-    private final double mutationRate = 0.03; // 0.5%-1%.
-    private final int tournamentSize = 3; // Number of members in tournament selection
-    private final int numberOfChildren = populationSize/3; // Rate of children to produce each generation
-    private final int numberOfParentsToSave = populationSize/20; // Number of parents to save in filtering
-    private final int durationPenaltyRate = 20; // Penalty for over duration
-    private final int loadPenaltyRate = 20; // Penalty for over load
-    private final boolean elitism = true; // Elitism keeps the best parents from last generation
-    private final int k = 3; // Number of splits in parents before doing crossOver
+    private String mapName; // Name of the solved map, used in file names and results.csv
+    private Parameters parameters;
 
-    private Population population;
+    private Population population; // Single Population, null when islandModel is used
+    private IslandModel islandModel; // Island model, null when a single Population is used
+    private Metrics metrics; // Shared by all islands, null when metrics are off
 
     /**
-     * Creates initial population
+     * Creates initial population with default parameters
+     * @param mapName
      * @param depots
      */
-    public GeneticAlgorithm(List<Depot> depots) {
-        population = new Population(depots,
-                populationSize,
-                crossOverRate,
-                mutationRate,
-                tournamentSize,
-                numberOfChildren,
-                numberOfParentsToSave,
-                durationPenaltyRate,
-                loadPenaltyRate,
-                elitism,
-                k);
+    public GeneticAlgorithm(String mapName, List<Depot> depots) {
+        this(mapName, depots, new Parameters());
+    }
+
+    /**
+     * Creates initial population, or one population per island
+     * @param mapName
+     * @param depots
+     * @param parameters
+     */
+    public GeneticAlgorithm(String mapName, List<Depot> depots, Parameters parameters) {
+        this.mapName = mapName;
+        this.parameters = parameters;
+        Rng rng = new Rng(parameters.getSeed());
+        this.metrics = parameters.isMetrics() ? new Metrics() : null;
+
+        if (parameters.getIslands() > 1) {
+            List<Population> islandPopulations = new ArrayList<>();
+            for (int i = 0; i < parameters.getIslands(); i++) {
+                islandPopulations.add(createPopulation(depots, rng.split())); // Independent stream per island
+            }
+            islandModel = new IslandModel(islandPopulations, parameters.getMigrationInterval(), parameters.getMigrants(), parameters.getTopology());
+        } else {
+            population = createPopulation(depots, rng);
+        }
+    }
+
+    private Population createPopulation(List<Depot> depots, Rng rng) {
+        return new Population(depots, parameters, metrics, rng);
     }
 
     /**
      * Functionality loop
      * One loop = one generation
      * population.tick() loops through all solutions
+     * islandModel.tick() runs every island up to the next migration, so one loop can be up to migrationInterval generations
      */
     public void tick() {
-        population.tick();
+        tick(0);
     }
 
     /**
-     * Draws solution in canvas
-     * @param gc
+     * @param maxGenerations generation the island model stops at, even before the next migration, 0 for no limit
      */
-    public void render(GraphicsContext gc) {
-        renderAlphaSolution(gc);
+    public void tick(int maxGenerations) {
+        if (islandModel != null) {
+            islandModel.tick(maxGenerations);
+        } else {
+            population.tick();
+        }
     }
 
     /**
-     * Draws best solution in canvas
-     * @param gc
+     * Writes the state of the Population or of all islands, see Checkpoint
+     * @param out
+     * @throws IOException
      */
-    private void renderAlphaSolution(GraphicsContext gc) {
-        Individual alphaIndividual = getAlphaSolution();
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(islandModel != null ? islandModel.getIslands().size() : 1);
 
-        if (alphaIndividual != null) {
-            for (Vehicle vehicle : alphaIndividual.getVehicles()) {
-                vehicle.render(gc);
-            }
+        if (islandModel != null) {
+            islandModel.writeState(out);
+        } else {
+            population.writeState(out);
+        }
+    }
+
+    /**
+     * Replaces the state with one written by writeState() with the same Map and parameters
+     * @param in
+     * @throws IOException If the number of islands differs
+     */
+    public void readState(DataInput in) throws IOException {
+        int islands = in.readInt();
+        int expectedIslands = islandModel != null ? islandModel.getIslands().size() : 1;
+        if (islands != expectedIslands) {
+            throw new IOException("State has " + islands + " islands, expected " + expectedIslands);
+        }
+
+        if (islandModel != null) {
+            islandModel.readState(in);
+        } else {
+            population.readState(in);
+        }
+    }
+
+    /**
+     * Stops worker threads
+     */
+    public void shutdown() {
+        if (islandModel != null) {
+            islandModel.shutdown();
+        } else {
+            population.shutdown();
         }
     }
 
@@ -82,35 +131,89 @@ public class GeneticAlgorithm {
      * Get best duration of Population
      */
     public double getAlphaDuration() {
-        return population.getAlphaDuration();
+        return getAlphaSolution().getDuration();
     }
 
     public double getAlphaFitness() {
-        return population.getAlphaFitness();
+        return getAlphaSolution().getFitness();
     }
 
     public boolean isAlphaValid() {
-        return population.isAlphaValid();
+        return getAlphaSolution().isValid();
+    }
+
+    public double getAverageFitness() {
+        return islandModel != null ? islandModel.getAverageFitness() : population.getAverageFitness();
     }
 
-    public double getAverageFitness() { return population.getAverageFitness(); }
+    public double getWorstFitness() {
+        return islandModel != null ? islandModel.getWorstFitness() : population.getWorstFitness();
+    }
 
     /**
-     * Get best Individual (Individual with best fitness) of Population
+     * Get best Individual (Individual with best fitness) of Population, or of all islands
      */
     public Individual getAlphaSolution() {
-        return population.getAlphaIndividual();
+        return islandModel != null ? islandModel.getAlphaIndividual() : population.getAlphaIndividual();
+    }
+
+    /**
+     * @return Share of route evaluations answered by the fitness cache, averaged over the islands
+     */
+    public double getFitnessCacheHitRate() {
+        if (islandModel == null) {
+            return population.getFitnessCacheHitRate();
+        }
+
+        double totalHitRate = 0.0;
+        for (Population island : islandModel.getIslands()) {
+            totalHitRate += island.getFitnessCacheHitRate();
+        }
+        return totalHitRate / islandModel.getIslands().size();
+    }
+
+    /**
+     * @return Average share of duplicate candidates per generation, over all generations and islands
+     */
+    public double getDuplicateRate() {
+        List<Population> populations = islandModel != null ? islandModel.getIslands() : List.of(population);
+        double totalRate = 0.0;
+
+        for (Population island : populations) {
+            totalRate += island.getDuplicateRate(); // Islands run the same number of generations
+        }
+
+        return totalRate / populations.size();
+    }
+
+    /**
+     * @return Phase times and operator counts of all islands, null when metrics are off
+     */
+    public Metrics getMetrics() {
+        return metrics;
     }
 
     public int getGeneration() {
-        return population.getGeneration();
+        return islandModel != null ? islandModel.getGeneration() : population.getGeneration();
     }
 
     public void saveAlphaSolutionToFile() throws IOException {
-        getAlphaSolution().saveToFile();
+        saveAlphaSolutionToFile("solution-" + Paths.get(mapName).getFileName() + "-" + System.currentTimeMillis());
+    }
+
+    public void saveAlphaSolutionToFile(String fileName) throws IOException {
+        getAlphaSolution().saveToFile(fileName);
+    }
+
+    public String getMapName() {
+        return mapName;
+    }
+
+    public Parameters getParameters() {
+        return parameters;
     }
 
     public void appendAlphaSolutionToCsv() throws IOException {
-        getAlphaSolution().appendToCSV(populationSize, crossOverRate, mutationRate, k, population.getGenerations());
+        getAlphaSolution().appendToCSV(mapName, parameters.getPopulationSize(), parameters.getCrossOverRate(), parameters.getMutationRate(), parameters.getK(), getGeneration());
     }
 }
@@ -1,72 +1,109 @@
 package GeneticAlgorithm;
 
-import Main.Controller;
+import Map.NeighbourLists;
 import MapObjects.Vehicle;
 import Utils.Utils;
 import MapObjects.Customer;
 import MapObjects.Depot;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.sql.Timestamp;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * One Individual in Population
- * Contains Routes from all Vehicles
+ * Contains Routes from all Vehicles, encoded as a Chromosome
+ * Vehicles are only created for rendering and saving
  */
 public class Individual {
-    private List<Depot> depots;
-    private List<Vehicle> vehicles;
+    private Problem problem;
+    private Chromosome chromosome;
+    private List<Vehicle> vehicles; // Decoded from chromosome when needed
     private int durationPenaltyRate;
     private int loadPenaltyRate;
     private double fitness;
+    private double duration; // Total duration of all routes, set by calculateFitness()
     private boolean isValid;
+    private double[] routeDurations; // Duration per route, set by calculateFitness()
+    private int[] routeLoads; // Load per route, set by calculateFitness()
 
     /**
-     * Generates initialSolution and calculates distances
+     * Creates an empty Individual, filled by one of the generate methods
      *
-     * @param depots
+     * @param problem
      * @param durationPenaltyRate
      * @param loadPenaltyRate
      */
-    public Individual(List<Depot> depots, int durationPenaltyRate, int loadPenaltyRate) {
-        this.depots = depots;
+    public Individual(Problem problem, int durationPenaltyRate, int loadPenaltyRate) {
+        this.problem = problem;
         this.durationPenaltyRate = durationPenaltyRate;
         this.loadPenaltyRate = loadPenaltyRate;
         vehicles = new ArrayList<>();
-        calculateFitness();
     }
 
-    public Individual(List<Depot> depots, int durationPenaltyRate, int loadPenaltyRate, List<Vehicle> vehicles) {
-        this.depots = depots;
+    public Individual(Problem problem, int durationPenaltyRate, int loadPenaltyRate, Chromosome chromosome) {
+        this.problem = problem;
         this.durationPenaltyRate = durationPenaltyRate;
         this.loadPenaltyRate = loadPenaltyRate;
-        this.vehicles = new ArrayList<>(vehicles);
+        this.chromosome = chromosome;
         calculateFitness();
     }
 
+    private Individual(Individual other) {
+        this.problem = other.problem;
+        this.durationPenaltyRate = other.durationPenaltyRate;
+        this.loadPenaltyRate = other.loadPenaltyRate;
+        this.chromosome = other.chromosome.copy();
+        this.fitness = other.fitness;
+        this.duration = other.duration;
+        this.isValid = other.isValid;
+        this.routeDurations = other.routeDurations.clone();
+        this.routeLoads = other.routeLoads.clone();
+    }
+
+    /**
+     * Overwrites this Individual with other, without allocating
+     * @param other
+     */
+    public void copyFrom(Individual other) {
+        chromosome.copyFrom(other.chromosome);
+        fitness = other.fitness;
+        duration = other.duration;
+        isValid = other.isValid;
+        System.arraycopy(other.routeDurations, 0, routeDurations, 0, routeDurations.length);
+        System.arraycopy(other.routeLoads, 0, routeLoads, 0, routeLoads.length);
+        vehicles = null;
+    }
+
+    /**
+     * @return Deep copy which shares nothing mutable with this Individual
+     */
+    public Individual copy() {
+        return new Individual(this);
+    }
+
     public boolean generateOptimizedIndividual(boolean force) {
-        for (Depot depot : depots) {
+        for (Depot depot : problem.getDepots()) {
             List<Vehicle> depotVehicles = createDepotVehicles(depot);
 
             List<Customer> depotCustomers = new ArrayList<>(depot.getCustomers()); // Current depot's customers
-            Collections.shuffle(depotCustomers);
+            Utils.shuffle(depotCustomers);
 
             for (Customer customer : depotCustomers) {
                 boolean customerAdded = false;
                 int triesLeft = 100;
+                NeighbourLists neighbourLists = problem.getNeighbourLists(); // Granular mode, null tries every position
                 while (!customerAdded && triesLeft > 0) {
 
                     double minDuration = Double.MAX_VALUE;
                     int minRouteIndex = -1;
                     Vehicle minVehicle = null;
 
-                    Collections.shuffle(depotVehicles);
+                    Utils.shuffle(depotVehicles);
                     for (Vehicle vehicle : depotVehicles) {
                         double tempMinDuration = Double.MAX_VALUE;
                         int tempRouteIndex = -1;
@@ -77,6 +114,10 @@ public class Individual {
                                 tempRouteIndex = 0;
                             } else {
                                 for (int i = 0; i < vehicle.getRoute().size(); i++) {
+                                    if (!vehicle.isCandidatePosition(i, customer, neighbourLists)) {
+                                        continue;
+                                    }
+
                                     double tempDuration = vehicle.calculateRouteDurationIfCustomerAdded(i, customer);
 
                                     if (tempDuration < tempMinDuration) {
@@ -94,7 +135,9 @@ public class Individual {
                         }
                     }
 
-                    if (minVehicle == null) {
+                    if (minVehicle == null && neighbourLists != null) {
+                        neighbourLists = null; // No route has a position next to a nearest customer, try all positions
+                    } else if (minVehicle == null) {
                         triesLeft--;
                     } else {
                         minVehicle.addCustomerToRoute(minRouteIndex, customer);
@@ -114,14 +157,15 @@ public class Individual {
             this.vehicles.addAll(depotVehicles);
         }
 
+        chromosome = problem.encode(vehicles);
         return true;
     }
 
     public boolean generateOptimizedIndividual2(boolean force) {
-        for (Depot depot : depots) {
+        for (Depot depot : problem.getDepots()) {
             List<Vehicle> depotVehicles = createDepotVehicles(depot);
-            List<Customer> depotCustomers = depot.getCustomers(); // Current depot's customers
-            Collections.shuffle(depotCustomers);
+            List<Customer> depotCustomers = new ArrayList<>(depot.getCustomers()); // Current depot's customers, copied since depots are shared between Populations
+            Utils.shuffle(depotCustomers);
 
             int triesLeft = 100;
             for (Customer customer : depotCustomers) { // Assign customer to random vehicle
@@ -130,7 +174,7 @@ public class Individual {
                     int randomIndex = Utils.randomIndex(depotVehicles.size()); // Random vehicle index
                     Vehicle randomVehicle = depotVehicles.get(randomIndex);
 
-                    customerAdded = randomVehicle.smartAddCustomerToRoute(customer, force);
+                    customerAdded = randomVehicle.smartAddCustomerToRoute(customer, force, problem.getNeighbourLists());
 
                     if (!customerAdded) {
                         triesLeft--;
@@ -145,14 +189,15 @@ public class Individual {
             this.vehicles.addAll(depotVehicles);
         }
 
+        chromosome = problem.encode(vehicles);
         return true;
     }
 
     public boolean generateRandomIndividual() {
-        for (Depot depot : depots) {
+        for (Depot depot : problem.getDepots()) {
             List<Vehicle> depotVehicles = createDepotVehicles(depot);
-            List<Customer> depotCustomers = depot.getCustomers(); // Current depot's customers
-            Collections.shuffle(depotCustomers);
+            List<Customer> depotCustomers = new ArrayList<>(depot.getCustomers()); // Current depot's customers
+            Utils.shuffle(depotCustomers);
 
             for (Customer customer : depotCustomers) { // Assign customer to random vehicle
                 boolean customerAdded = false;
@@ -166,85 +211,116 @@ public class Individual {
 
             this.vehicles.addAll(depotVehicles);
         }
+
+        chromosome = problem.encode(vehicles);
         return true;
     }
 
     /**
-     * Performs n random mutations on the vehicles based on the mutationRate
-     * Mutation is only executed if random < crossOverRate
+     * Swaps two random customers in one random route
      */
-    public List<Vehicle> swapMutation() {
-        // Copy of vehicles
-        List<Vehicle> newVehicles = deepCopyVehicles();
+    public void swapMutation() {
+        int route = Utils.randomIndex(chromosome.getRoutesCount());
+        int routeSize = chromosome.getRouteSize(route);
 
-        int randomIndex = Utils.randomIndex(vehicles.size());
-        Vehicle vehicle = vehicles.get(randomIndex);
-        List<Customer> newRoute = vehicle.swapMutate();
-        Vehicle newVehicle = new Vehicle(vehicle.getStartDepot(), newRoute);
+        if (routeSize > 1) {
+            int indexA = 0;
+            int indexB = 0;
 
-        newVehicles.remove(vehicle);
-        newVehicles.add(newVehicle);
+            while (indexA == indexB) {
+                indexA = Utils.randomIndex(routeSize);
+                indexB = Utils.randomIndex(routeSize);
+            }
+
+            int routeStart = chromosome.getRouteStart(route);
+            chromosome.swap(routeStart + indexA, routeStart + indexB);
+        }
 
-        return newVehicles;
+        calculateFitness();
     }
 
-    public List<Vehicle> swapMutation2() {
-        // Copy of vehicles
-        List<Vehicle> newVehicles = deepCopyVehicles();
+    /**
+     * Exchanges a random customer between two random routes
+     * If one of the routes is empty, the customer from the other route is moved to it
+     */
+    public void swapMutation2() {
+        int route1 = Utils.randomIndex(chromosome.getRoutesCount());
+        int route2 = Utils.randomIndex(chromosome.getRoutesCount());
+        int routeSize1 = chromosome.getRouteSize(route1);
+        int routeSize2 = chromosome.getRouteSize(route2);
+
+        if (routeSize1 != 0 && routeSize2 != 0) {
+            int position1 = chromosome.getRouteStart(route1) + Utils.randomIndex(routeSize1);
+            int position2 = chromosome.getRouteStart(route2) + Utils.randomIndex(routeSize2);
+            chromosome.swap(position1, position2);
+        } else if (routeSize1 != 0) {
+            int position1 = chromosome.getRouteStart(route1) + Utils.randomIndex(routeSize1);
+            int customer = chromosome.getCustomer(position1);
+            chromosome.remove(position1);
+            chromosome.insert(route2, 0, customer);
+        } else if (routeSize2 != 0) {
+            int position2 = chromosome.getRouteStart(route2) + Utils.randomIndex(routeSize2);
+            int customer = chromosome.getCustomer(position2);
+            chromosome.remove(position2);
+            chromosome.insert(route1, 0, customer);
+        }
 
-        int randomIndex1 = Utils.randomIndex(newVehicles.size());
-        int randomIndex2 = Utils.randomIndex(newVehicles.size());
-        Vehicle vehicle1 = newVehicles.get(randomIndex1);
-        Vehicle vehicle2 = newVehicles.get(randomIndex2);
-        randomIndex1 = Utils.randomIndex(vehicle1.getRoute().size());
-        randomIndex2 = Utils.randomIndex(vehicle2.getRoute().size());
+        calculateFitness();
+    }
 
-        Customer customer1 = null;
-        Customer customer2 = null;
+    /**
+     * Splits two random routes and exchanges their tails
+     *
+     * @param scratchChromosome written and copied back, since the tails can not be exchanged in place
+     */
+    public void crossMutation(Chromosome scratchChromosome) {
+        int routes = chromosome.getRoutesCount();
 
-        if (vehicle1.getRoute().size() != 0) {
-            randomIndex1 = Utils.randomIndex(vehicle1.getRoute().size());
-            customer1 = vehicle1.getRoute().get(randomIndex1);
+        if (routes <= 1) {
+            return;
         }
 
-        if (vehicle2.getRoute().size() != 0) {
-            randomIndex2 = Utils.randomIndex(vehicle2.getRoute().size());
-            customer2 = vehicle2.getRoute().get(randomIndex2);
-        }
+        // Pick two random routes
+        int route1 = Utils.randomIndex(routes);
+        int route2 = route1;
 
-        if (customer1 != null) {
-            vehicle1.removeCustomerFromRoute(customer1);
-            vehicle2.addCustomerToRoute(randomIndex2, customer1);
+        while (route1 == route2) {
+            route2 = Utils.randomIndex(routes);
         }
 
-        if (customer2 != null) {
-            vehicle2.removeCustomerFromRoute(customer2);
-            vehicle1.addCustomerToRoute(randomIndex1, customer2);
+        int partitionIndex1 = chromosome.getRouteStart(route1) + Utils.randomIndex(chromosome.getRouteSize(route1));
+        int partitionIndex2 = chromosome.getRouteStart(route2) + Utils.randomIndex(chromosome.getRouteSize(route2));
+
+        Chromosome newChromosome = scratchChromosome;
+        newChromosome.clear();
+
+        for (int route = 0; route < routes; route++) {
+            if (route == route1) {
+                newChromosome.beginRoute(route, chromosome.getStartDepot(route1), chromosome.getEndDepot(route2));
+                addCustomers(newChromosome, chromosome.getRouteStart(route1), partitionIndex1);
+                addCustomers(newChromosome, partitionIndex2, chromosome.getRouteEnd(route2));
+            } else if (route == route2) {
+                newChromosome.beginRoute(route, chromosome.getStartDepot(route2), chromosome.getEndDepot(route1));
+                addCustomers(newChromosome, chromosome.getRouteStart(route2), partitionIndex2);
+                addCustomers(newChromosome, partitionIndex1, chromosome.getRouteEnd(route1));
+            } else {
+                newChromosome.beginRoute(route, chromosome.getStartDepot(route), chromosome.getEndDepot(route));
+                addCustomers(newChromosome, chromosome.getRouteStart(route), chromosome.getRouteEnd(route));
+            }
         }
 
-        return newVehicles;
+        newChromosome.endRoutes();
+        chromosome.copyFrom(newChromosome);
+        calculateFitness();
     }
 
-    public List<Vehicle> crossMutation() {
-        // Copy of vehicles
-        List<Vehicle> newVehicles = deepCopyVehicles();
-
-        // Pick two random vehicles
-        int randomIndex1 = Utils.randomIndex(vehicles.size());
-        int randomIndex2 = Utils.randomIndex(vehicles.size());
-
-        Vehicle randomVehicle1 = vehicles.get(randomIndex1).clone();
-        Vehicle randomVehicle2 = vehicles.get(randomIndex2).clone();
-
-        // Remove the old vehicles
-        newVehicles.remove(randomVehicle1);
-        newVehicles.remove(randomVehicle2);
-
-        // Mutate the two vehicles and add them to newVehicles
-        List<Customer>[] mutatedRoutes = randomVehicle1.crossMutate(randomVehicle2.getRoute());
-        newVehicles.add(new Vehicle(randomVehicle1.getStartDepot(), randomVehicle2.getEndDepot(), mutatedRoutes[0]));
-        newVehicles.add(new Vehicle(randomVehicle2.getStartDepot(), randomVehicle1.getEndDepot(), mutatedRoutes[1]));
-        return newVehicles;
+    /**
+     * Copies customers [from, to> of this chromosome to the route being written in newChromosome
+     */
+    private void addCustomers(Chromosome newChromosome, int from, int to) {
+        for (int i = from; i < to; i++) {
+            newChromosome.add(chromosome.getCustomer(i));
+        }
     }
 
     private List<Vehicle> createDepotVehicles(Depot depot) {
@@ -258,216 +334,381 @@ public class Individual {
     }
 
     public void calculateFitness() {
+        Metrics metrics = problem.getMetrics();
+
+        if (metrics == null) {
+            evaluate();
+        } else {
+            long startNanoTime = System.nanoTime();
+            evaluate();
+            metrics.record(Metrics.Phase.EVALUATION, startNanoTime);
+        }
+    }
+
+    /**
+     * Sets fitness, duration, validity and the duration and load of every route from the chromosome
+     */
+    private void evaluate() {
         double calculatedFitness = 0.0;
+        double calculatedDuration = 0.0;
         isValid = true;
 
-        for (Vehicle vehicle : vehicles) {
-            double penalty = 0;
+        int routes = chromosome.getRoutesCount();
+        if (routeDurations == null) {
+            routeDurations = new double[routes];
+            routeLoads = new int[routes];
+        }
+        vehicles = null; // Decoded again from the new chromosome when needed
 
-            double maxDuration = vehicle.getStartDepot().getMaxDuration();
-            double duration = vehicle.calculateRouteDuration();
-            if (maxDuration != 0 && duration > maxDuration) {
-                penalty += ((duration - maxDuration) * durationPenaltyRate);
-            }
+        FitnessCache cache = problem.getFitnessCache(); // Unchanged routes are looked up by their hash instead of evaluated
+
+        for (int route = 0; route < routes; route++) {
+            double duration;
+            int load;
 
-            double maxLoad = vehicle.getStartDepot().getMaxLoad();
-            double load = vehicle.getCurrentLoad();
-            if (maxLoad != 0 && load > maxLoad) {
-                penalty += ((load - maxLoad) * loadPenaltyRate);
+            if (cache != null && chromosome.getRouteSize(route) > 0) {
+                long routeHash = chromosome.getRouteHash(route);
+
+                if (cache.get(routeHash)) {
+                    duration = cache.getDuration();
+                    load = cache.getLoad();
+                } else {
+                    duration = calculateRouteDuration(chromosome, route);
+                    load = calculateRouteLoad(chromosome, route);
+                    cache.put(routeHash, duration, load);
+                }
+            } else {
+                duration = calculateRouteDuration(chromosome, route);
+                load = calculateRouteLoad(chromosome, route);
             }
 
+            double penalty = calculatePenalty(chromosome.getStartDepot(route), duration, load);
+
             if (penalty > 0) {
                 isValid = false;
             }
 
+            routeDurations[route] = duration;
+            routeLoads[route] = load;
+            calculatedDuration += duration;
             calculatedFitness += (duration + penalty);
         }
 
+        this.duration = calculatedDuration;
         this.fitness = calculatedFitness;
     }
 
-    public double getFitness() {
-        return fitness;
+    /**
+     * Calculates the change in fitness of route if a segment is inserted at addIndex
+     * Only the edge between the neighbours at addIndex is replaced by the two edges to the segment, so this is O(1)
+     *
+     * @param duration current duration of route
+     * @param load current load of route
+     * @param first first customer of the segment
+     * @param last last customer of the segment
+     * @param segmentDuration duration of the segment, from first to last customer including service times
+     * @param segmentLoad load of the segment
+     * @return
+     */
+    private double calculateDeltaIfRouteAdded(Chromosome chromosome, int route, int addIndex, double duration, int load,
+                                              int first, int last, double segmentDuration, int segmentLoad) {
+        int startDepot = chromosome.getStartDepot(route);
+        int position = chromosome.getRouteStart(route) + addIndex;
+        int previous = addIndex == 0 ? startDepot : chromosome.getCustomer(position - 1);
+        int next = position == chromosome.getRouteEnd(route) ? chromosome.getEndDepot(route) : chromosome.getCustomer(position);
+
+        double newDuration = problem.distance(previous, first) + segmentDuration + problem.distance(last, next);
+        if (chromosome.getRouteSize(route) != 0) {
+            newDuration += duration - problem.distance(previous, next);
+        }
+
+        int newLoad = load + segmentLoad;
+
+        return (newDuration + calculatePenalty(startDepot, newDuration, newLoad)) - (duration + calculatePenalty(startDepot, duration, load));
     }
 
-    public double getDuration() {
+    private double calculatePenalty(int depot, double duration, int load) {
+        double penalty = 0;
+
+        double maxDuration = problem.getMaxDuration(depot);
+        if (maxDuration != 0 && duration > maxDuration) {
+            penalty += ((duration - maxDuration) * durationPenaltyRate);
+        }
+
+        int maxLoad = problem.getMaxLoad(depot);
+        if (maxLoad != 0 && load > maxLoad) {
+            penalty += ((load - maxLoad) * loadPenaltyRate);
+        }
+
+        return penalty;
+    }
+
+    /**
+     * Calculates duration of route: travel distance plus service time of every customer
+     */
+    private double calculateRouteDuration(Chromosome chromosome, int route) {
+        int routeStart = chromosome.getRouteStart(route);
+        int routeEnd = chromosome.getRouteEnd(route);
+
+        if (routeStart == routeEnd) {
+            return 0.0;
+        }
+
         double duration = 0.0;
+        int previous = chromosome.getStartDepot(route);
+
+        for (int i = routeStart; i < routeEnd; i++) {
+            int customer = chromosome.getCustomer(i);
+            duration += problem.distance(previous, customer) + problem.getTimeDemand(customer);
+            previous = customer;
+        }
+
+        duration += problem.distance(previous, chromosome.getEndDepot(route));
+        return duration;
+    }
+
+    private int calculateRouteLoad(Chromosome chromosome, int route) {
+        int load = 0;
 
-        for (Vehicle vehicle : vehicles) {
-            duration += vehicle.calculateRouteDuration();
+        for (int i = chromosome.getRouteStart(route); i < chromosome.getRouteEnd(route); i++) {
+            load += problem.getLoadDemand(chromosome.getCustomer(i));
         }
 
+        return load;
+    }
+
+    public double getFitness() {
+        return fitness;
+    }
+
+    public double getDuration() {
         return duration;
     }
 
+    public Chromosome getChromosome() {
+        return chromosome;
+    }
+
+    Problem getProblem() {
+        return problem;
+    }
+
     public List<Vehicle> getVehicles() {
+        if (vehicles == null) {
+            vehicles = problem.decode(chromosome);
+        }
         return vehicles;
     }
 
     /**
-     * @param otherRoute
-     * @return
+     * Removes the customers of segment [from, to> of source from all routes
+     * Inserts the segment as a whole at the position which gives the best fitness
+     * Writes the result to child, this Individual is not changed
+     *
+     * @param source chromosome containing the segment, usually the other parent
+     * @param from first position of the segment in source
+     * @param to position after the segment in source
+     * @param child
+     * @param workspace scratch memory of the calling thread
      */
+    public void singlePointCrossOver(Chromosome source, int from, int to, Individual child, Workspace workspace) {
+        if (chromosome == null) {
+            throw new NullPointerException("No chromosome in solution");
+        } else if (from == to) {
+            child.copyFrom(this);
+            return;
+        }
 
-    public List<Vehicle> singlePointCrossOver(List<Customer> otherRoute) {
-        if (vehicles == null) {
-            throw new NullPointerException("No vehicles in solution");
-        } else if (otherRoute.size() == 0) {
-            return vehicles;
+        Chromosome reducedChromosome = workspace.getReducedChromosome();
+        removeRouteFromChromosome(source, from, to, reducedChromosome, workspace.getRemoved());
+        int routes = reducedChromosome.getRoutesCount();
+
+        // Duration and load of the reduced routes, reusing the cached values of unchanged routes
+        double[] reducedDurations = workspace.getRouteDurations();
+        int[] reducedLoads = workspace.getRouteLoads();
+
+        for (int route = 0; route < routes; route++) {
+            if (reducedChromosome.getRouteSize(route) == chromosome.getRouteSize(route)
+                    && reducedChromosome.getEndDepot(route) == chromosome.getEndDepot(route)) {
+                reducedDurations[route] = routeDurations[route];
+                reducedLoads[route] = routeLoads[route];
+            } else {
+                reducedDurations[route] = calculateRouteDuration(reducedChromosome, route);
+                reducedLoads[route] = calculateRouteLoad(reducedChromosome, route);
+            }
         }
 
-        List<Vehicle> newVehicles = deepCopyVehicles();
+        // Duration and load of the segment itself, excluding the edges connecting it to a route
+        int first = source.getCustomer(from);
+        int last = source.getCustomer(to - 1);
+        double segmentDuration = problem.getTimeDemand(first);
+        int segmentLoad = problem.getLoadDemand(first);
 
-        // Remove route from otherRoute
-        removeRouteFromVehicles(newVehicles, otherRoute);
+        for (int i = from + 1; i < to; i++) {
+            segmentDuration += problem.distance(source.getCustomer(i - 1), source.getCustomer(i)) + problem.getTimeDemand(source.getCustomer(i));
+            segmentLoad += problem.getLoadDemand(source.getCustomer(i));
+        }
 
-        // Rull gjennom alle ruter og regn ut diff i fitness på alle mulige steder
-        double minFitnessIfAdded = Double.MAX_VALUE;
-        Vehicle minVehicle = null;
+        // Go through all routes and calculate the change in fitness for every possible position
+        // In granular mode only positions next to a nearest customer of the segment's ends, and empty routes, are tried
+        boolean[] candidates = problem.isGranular() ? findGranularPositions(reducedChromosome, first, last, workspace.getCandidates()) : null;
+        double minDelta = Double.MAX_VALUE;
+        int minRoute = -1;
         int minIndex = -1;
 
-        for (Vehicle vehicle : newVehicles) {
-            double fitnessIfAdded;
+        while (minRoute == -1) {
+            for (int route = 0; route < routes; route++) {
+                int routeStart = reducedChromosome.getRouteStart(route);
+                int routeSize = reducedChromosome.getRouteSize(route);
 
-            if (vehicle.getRoute().size() == 0) {
-                fitnessIfAdded = calculateFitnessIfRouteAdded(newVehicles, vehicle, 0, otherRoute);
+                for (int routeIndex = 0; routeIndex < Math.max(routeSize, 1); routeIndex++) {
+                    if (candidates != null && routeSize > 0 && !candidates[routeStart + routeIndex]) {
+                        continue;
+                    }
 
-                minFitnessIfAdded = fitnessIfAdded;
-                minVehicle = vehicle;
-                minIndex = 0;
-            } else {
-                for (int routeIndex = 0; routeIndex < vehicle.getRoute().size(); routeIndex++) {
-                    fitnessIfAdded = calculateFitnessIfRouteAdded(newVehicles, vehicle, routeIndex, otherRoute);
+                    double delta = calculateDeltaIfRouteAdded(reducedChromosome, route, routeIndex, reducedDurations[route], reducedLoads[route],
+                            first, last, segmentDuration, segmentLoad);
 
-                    if (fitnessIfAdded < minFitnessIfAdded) {
-                        minFitnessIfAdded = fitnessIfAdded;
-                        minVehicle = vehicle;
+                    if (delta < minDelta) {
+                        minDelta = delta;
+                        minRoute = route;
                         minIndex = routeIndex;
                     }
                 }
             }
 
-            setBestEndDepot(vehicle);
+            if (candidates == null) {
+                break;
+            }
+            candidates = null; // No position next to a nearest customer, try all positions
         }
 
-        if (minVehicle == null) {
-            throw new Error("MinVehicle is null");
-        } else {
-            minVehicle.addOtherRouteToRoute(minIndex, otherRoute);
+        if (minRoute == -1) {
+            throw new Error("MinRoute is not set");
         }
 
-        return newVehicles;
-    }
+        Chromosome newChromosome = child.chromosome;
+        newChromosome.clear();
+
+        for (int route = 0; route < reducedChromosome.getRoutesCount(); route++) {
+            int routeStart = reducedChromosome.getRouteStart(route);
+            int routeEnd = reducedChromosome.getRouteEnd(route);
+            newChromosome.beginRoute(route, reducedChromosome.getStartDepot(route), reducedChromosome.getEndDepot(route));
+
+            for (int i = routeStart; i <= routeEnd; i++) {
+                if (route == minRoute && i == routeStart + minIndex) {
+                    for (int j = from; j < to; j++) {
+                        newChromosome.add(source.getCustomer(j));
+                    }
+                }
+
+                if (i < routeEnd) {
+                    newChromosome.add(reducedChromosome.getCustomer(i));
+                }
+            }
+        }
 
-    private List<Vehicle> deepCopyVehicles() {
-        // Creating a deep copy of vehicles
-        List<Vehicle> newVehicles = new ArrayList<>();
-        for (Vehicle vehicle : vehicles) {
-            newVehicles.add(vehicle.clone());
+        newChromosome.endRoutes();
+
+        if (reducedChromosome.getRouteSize(minRoute) == 0) {
+            setBestEndDepot(newChromosome, minRoute);
         }
-        return newVehicles;
+
+        for (int route = 0; route < routes; route++) { // Routes the segment was not removed from or inserted into keep their hash
+            if (route != minRoute && newChromosome.getRouteSize(route) == chromosome.getRouteSize(route)
+                    && newChromosome.getEndDepot(route) == chromosome.getEndDepot(route)) {
+                newChromosome.copyRouteHash(route, chromosome);
+            }
+        }
+
+        child.calculateFitness();
     }
 
-    private void removeRouteFromVehicles(List<Vehicle> newVehicles, List<Customer> routeToRemove) {
-        for (Vehicle vehicle : newVehicles) {
-            List<Customer> routeCopy = new ArrayList<>(vehicle.getRoute()); // Copy to avoid error when removing while looping
-            for (Customer customer : routeCopy) {
-                if (routeToRemove.contains(customer)) {
-                    vehicle.removeCustomerFromRoute(customer);
+    /**
+     * Marks the chromosome positions where inserting a segment puts one of its ends next to one of its nearest customers
+     * Position p means inserting before the customer at p, only positions inside a non-empty route are marked
+     */
+    private boolean[] findGranularPositions(Chromosome chromosome, int first, int last, boolean[] candidates) {
+        NeighbourLists neighbourLists = problem.getNeighbourLists();
+        Arrays.fill(candidates, false);
+
+        for (int r = 0; r < chromosome.getRoutesCount(); r++) {
+            int routeEnd = chromosome.getRouteEnd(r);
+
+            for (int i = chromosome.getRouteStart(r); i < routeEnd; i++) {
+                int customer = chromosome.getCustomer(i);
+
+                if (neighbourLists.contains(last, customer)) { // last is followed by customer
+                    candidates[i] = true;
+                }
+                if (i + 1 < routeEnd && neighbourLists.contains(first, customer)) { // customer is followed by first
+                    candidates[i + 1] = true;
                 }
             }
         }
+
+        return candidates;
     }
 
-    private void setBestEndDepot(Vehicle vehicle) {
-        if (vehicle.getRoute().size() > 0) {
-            double currentMinDistance = Double.MAX_VALUE;
-            Depot currentBestEndDepot = null;
-            for (Depot depot : depots) {
-                double distance = depot.distance(vehicle.getRoute().get(vehicle.getRoute().size() - 1));
-                if (distance < currentMinDistance) {
-                    currentMinDistance = distance;
-                    currentBestEndDepot = depot;
+    /**
+     * Writes chromosome without the customers in source [from, to> to reducedChromosome
+     * Every non-empty route ends in the depot nearest to its last customer
+     */
+    private void removeRouteFromChromosome(Chromosome source, int from, int to, Chromosome reducedChromosome, boolean[] removed) {
+        for (int i = from; i < to; i++) {
+            removed[source.getCustomer(i)] = true;
+        }
+
+        reducedChromosome.clear();
+
+        for (int route = 0; route < chromosome.getRoutesCount(); route++) {
+            reducedChromosome.beginRoute(route, chromosome.getStartDepot(route), chromosome.getEndDepot(route));
+
+            for (int i = chromosome.getRouteStart(route); i < chromosome.getRouteEnd(route); i++) {
+                int customer = chromosome.getCustomer(i);
+                if (!removed[customer]) {
+                    reducedChromosome.add(customer);
                 }
             }
-            vehicle.setEndDepot(currentBestEndDepot);
+        }
+
+        reducedChromosome.endRoutes();
+
+        for (int route = 0; route < reducedChromosome.getRoutesCount(); route++) {
+            setBestEndDepot(reducedChromosome, route);
+        }
+
+        for (int i = from; i < to; i++) {
+            removed[source.getCustomer(i)] = false;
         }
     }
 
-    private double calculateFitnessIfRouteAdded(List<Vehicle> vehicles, Vehicle vehicle, int addIndex, List<Customer> routeToAdd) {
-        List<Vehicle> originalVehiclesCopy = this.vehicles;
-        double originalFitness = fitness;
-        this.vehicles = vehicles;
-        vehicle.addOtherRouteToRoute(addIndex, routeToAdd);
-        calculateFitness();
-        double newFitness = fitness;
-        vehicle.removeRouteFromRoute(routeToAdd);
-        this.fitness = originalFitness;
-        this.vehicles = originalVehiclesCopy;
-        return newFitness;
-    }
-
-    private double calculateFitnessIfCustomerAdded(List<Vehicle> vehicles, Vehicle vehicle, int addIndex, Customer customerToAdd) {
-        List<Vehicle> originalVehiclesCopy = this.vehicles;
-        double originalFitness = fitness;
-        this.vehicles = vehicles;
-        vehicle.addCustomerToRoute(addIndex, customerToAdd);
-        calculateFitness();
-        double newFitness = fitness;
-        vehicle.removeCustomerFromRoute(customerToAdd);
-        this.fitness = originalFitness;
-        this.vehicles = originalVehiclesCopy;
-        return newFitness;
+    private void setBestEndDepot(Chromosome chromosome, int route) {
+        if (chromosome.getRouteSize(route) > 0) {
+            int lastCustomer = chromosome.getCustomer(chromosome.getRouteEnd(route) - 1);
+            chromosome.setEndDepot(route, problem.getNearestDepot(lastCustomer));
+        }
     }
 
     public boolean isValid() {
         return isValid;
     }
 
-    public void saveToFile() throws IOException {
-        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
-        BufferedWriter writer = new BufferedWriter(new FileWriter("solution-" + Controller.fileName + "-" + timestamp.getTime()));
-
-        writer.write(Double.toString(Utils.round(getDuration(), 2)));
-
-        int vehicleId = 0;
-        String lastDepotId = vehicles.get(0).getStartDepot().getId();
-
-        for (Vehicle vehicle : vehicles) {
-            if (vehicle.getStartDepot().getId() == lastDepotId) {
-                vehicleId++;
-                writer.newLine();
-                writer.write(vehicle.getStartDepot().getId() + "\t" // s: number of the start depot
-                        + vehicleId + "\t" // k: number of the vehicle (for above depot)
-                        + Utils.round(vehicle.calculateRouteDuration(), 2) + "   " // d: duration of the route for a particular vehicle from a particular depot
-                        + vehicle.getCurrentLoad() + "\t" // q: carried load of the vehicle
-                        + vehicle.getEndDepot().getId() + "\t" // e: number of the end depot
-                        + vehicle.getRoute().toString() // list: ordered sequence of customers (served by a particular vehicle)
-                        .replace(",", "")  // remove the commas
-                        .replace("[", "")  // remove the right bracket
-                        .replace("]", "")  // remove the left bracket
-                );
-            } else {
-                vehicleId = 1;
-                writer.newLine();
-                writer.write(vehicle.getStartDepot().getId() + "\t" // s: number of the start depot
-                        + vehicleId + "\t" // k: number of the vehicle (for above depot)
-                        + Utils.round(vehicle.calculateRouteDuration(), 2) + "   " // d: duration of the route for a particular vehicle from a particular depot
-                        + vehicle.getCurrentLoad() + "\t" // q: carried load of the vehicle
-                        + vehicle.getEndDepot().getId() + "\t" // e: number of the end depot
-                        + vehicle.getRoute().toString() // list: ordered sequence of customers (served by a particular vehicle)
-                        .replace(",", "")  // remove the commas
-                        .replace("[", "")  // remove the right bracket
-                        .replace("]", "")  // remove the left bracket
-                );
-            }
-            lastDepotId = vehicle.getStartDepot().getId();
-        }
-
-        writer.close();
+    /**
+     * Writes the Individual in the format of the solution (.res) files
+     *
+     * @param fileName
+     * @throws IOException
+     */
+    public void saveToFile(String fileName) throws IOException {
+        new SolutionWriter().write(this, Paths.get(fileName));
     }
 
-    public void appendToCSV(int populationSize, double crossOverRate, double mutationRate, int k, List<Double> generations) throws IOException {
+    /**
+     * Appends one row with the parameters, generations and result of the run to results.csv
+     * The fitness of every generation is in the generation log of the Solver instead
+     */
+    public void appendToCSV(String mapName, int populationSize, double crossOverRate, double mutationRate, int k, int generations) throws IOException {
         File file = new File("results.csv");
 
         if (!file.exists()) {
@@ -477,7 +718,7 @@ public class Individual {
 
         FileWriter csvWriter = new FileWriter("results.csv", true);
         csvWriter.append("\n")
-                .append(Controller.fileName)
+                .append(mapName)
                 .append(", ")
                 .append(String.valueOf(populationSize))
                 .append(", ")
@@ -485,25 +726,21 @@ public class Individual {
                 .append(", ")
                 .append(String.valueOf(mutationRate))
                 .append(", ")
-                .append(String.valueOf(k));
-
-        for (int i = 0; i < 10000; i++) {
-            if (i > generations.size() - 1) {
-                csvWriter.append(", ").append(String.valueOf(generations.get(generations.size() - 1)));
-            } else {
-                csvWriter.append(", ").append(String.valueOf(generations.get(i)));
-            }
-        }
+                .append(String.valueOf(k))
+                .append(", ")
+                .append(String.valueOf(generations))
+                .append(", ")
+                .append(String.valueOf(getFitness()))
+                .append(", ")
+                .append(String.valueOf(getDuration()))
+                .append(", ")
+                .append(String.valueOf(isValid()));
         csvWriter.close();
     }
 
     private void createCsv() throws IOException {
         FileWriter csvWriter = new FileWriter("results.csv");
-        csvWriter.append("Map, Population size, Crossover rate, Mutation rate, k");
-
-        for (int i = 1; i <= 10000; i++) {
-            csvWriter.append(", ").append(String.valueOf(i));
-        }
+        csvWriter.append("Map, Population size, Crossover rate, Mutation rate, k, Generations, Fitness, Duration, Valid");
         csvWriter.close();
     }
 
@@ -0,0 +1,215 @@
+package GeneticAlgorithm;
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Island model: n independent Populations (islands), each running on its own thread
+ * Every migrationInterval generations each island sends copies of its best Individuals to its neighbours
+ * Islands only meet at migrations: tick() runs every island up to the next migration without waiting for the others,
+ * then migrates on the calling thread, island by island, so the migrants are always taken in at the start of
+ * the next generation and seeded runs are reproducible
+ */
+public class IslandModel {
+
+    /**
+     * Which islands receive the migrants of an island
+     */
+    public enum Topology {
+        RING, // The next island
+        FULLY_CONNECTED // All other islands
+    }
+
+    private List<Population> islands;
+    private int migrationInterval; // Number of generations between migrations
+    private int migrants; // Number of Individuals sent to each neighbour
+    private Topology topology;
+
+    private ExecutorService executor; // One thread per island
+    private List<Callable<Void>> islandTicks = new ArrayList<>();
+
+    private int targetGeneration; // Generation the islands run up to in the current tick(), set before they start
+
+    private Individual alphaIndividual; // Best Individual of all islands
+
+    public IslandModel(List<Population> islands, int migrationInterval, int migrants, Topology topology) {
+        this.islands = islands;
+        this.migrationInterval = migrationInterval;
+        this.migrants = migrants;
+        this.topology = topology;
+        this.executor = Executors.newFixedThreadPool(islands.size(), runnable -> {
+            Thread thread = new Thread(runnable, "island");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (int i = 0; i < islands.size(); i++) {
+            int islandIndex = i;
+            islandTicks.add(() -> {
+                tickIsland(islandIndex);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Runs every island up to the next migration in parallel, followed by migration
+     * @param maxGenerations stops the islands early at this generation, 0 for no limit. The next tick() continues up to the migration
+     */
+    public void tick(int maxGenerations) {
+        int generation = getGeneration();
+        targetGeneration = (generation / migrationInterval + 1) * migrationInterval;
+        if (maxGenerations > generation) {
+            targetGeneration = Math.min(targetGeneration, maxGenerations);
+        }
+
+        try {
+            for (Future<Void> future : executor.invokeAll(islandTicks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Island failed", e.getCause());
+        }
+
+        if (getGeneration() % migrationInterval == 0) {
+            for (int i = 0; i < islands.size(); i++) {
+                migrate(i);
+            }
+        }
+
+        for (Population island : islands) {
+            if (alphaIndividual == null || island.getAlphaFitness() < alphaIndividual.getFitness()) {
+                alphaIndividual = island.getAlphaIndividual();
+            }
+        }
+    }
+
+    private void tickIsland(int islandIndex) {
+        Population island = islands.get(islandIndex);
+        while (island.getGeneration() < targetGeneration) {
+            island.tick();
+        }
+    }
+
+    /**
+     * Sends copies of the best Individuals of an island to its neighbours
+     */
+    private void migrate(int islandIndex) {
+        List<Individual> emigrants = islands.get(islandIndex).getBestIndividuals(migrants);
+
+        for (int neighbourIndex : getNeighbours(islandIndex)) {
+            Population neighbour = islands.get(neighbourIndex);
+            for (Individual emigrant : emigrants) {
+                neighbour.addImmigrant(emigrant);
+            }
+        }
+    }
+
+    private List<Integer> getNeighbours(int islandIndex) {
+        List<Integer> neighbours = new ArrayList<>();
+
+        if (topology == Topology.RING) {
+            if (islands.size() > 1) {
+                neighbours.add((islandIndex + 1) % islands.size());
+            }
+        } else {
+            for (int i = 0; i < islands.size(); i++) {
+                if (i != islandIndex) {
+                    neighbours.add(i);
+                }
+            }
+        }
+
+        return neighbours;
+    }
+
+    /**
+     * Writes the alpha and the state of every island, see Population.writeState()
+     * @param out
+     * @throws IOException
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeBoolean(alphaIndividual != null);
+        if (alphaIndividual != null) {
+            alphaIndividual.getChromosome().write(out);
+        }
+
+        for (Population island : islands) {
+            island.writeState(out);
+        }
+    }
+
+    /**
+     * Replaces the state with one written by writeState() from an IslandModel with the same number of islands
+     * @param in
+     * @throws IOException
+     */
+    public void readState(DataInput in) throws IOException {
+        alphaIndividual = in.readBoolean() ? islands.get(0).readIndividual(in) : null;
+
+        for (Population island : islands) {
+            island.readState(in);
+        }
+    }
+
+    /**
+     * Stops the island threads
+     */
+    public void shutdown() {
+        executor.shutdown();
+
+        for (Population island : islands) {
+            island.shutdown();
+        }
+    }
+
+    public Individual getAlphaIndividual() {
+        return alphaIndividual;
+    }
+
+    /**
+     * @return Average fitness of all islands
+     */
+    public double getAverageFitness() {
+        double totalFitness = 0.0;
+
+        for (Population island : islands) {
+            totalFitness += island.getAverageFitness();
+        }
+
+        return totalFitness / islands.size();
+    }
+
+    /**
+     * @return Worst fitness of all islands
+     */
+    public double getWorstFitness() {
+        double worstFitness = -Double.MAX_VALUE;
+
+        for (Population island : islands) {
+            worstFitness = Math.max(worstFitness, island.getWorstFitness());
+        }
+
+        return worstFitness;
+    }
+
+    public int getGeneration() {
+        return islands.get(0).getGeneration();
+    }
+
+    public List<Population> getIslands() {
+        return islands;
+    }
+}
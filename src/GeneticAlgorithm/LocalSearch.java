@@ -0,0 +1,374 @@
+package GeneticAlgorithm;
+
+import Map.NeighbourLists;
+
+/**
+ * Local search used to educate children: repeats improving moves until none is left or the deadline passes
+ * Intra route moves: 2-opt and Or-opt (moving a segment of 1-3 customers)
+ * Inter route moves: relocate a customer and swap two customers, only next to one of its nearest customers
+ * Every move is evaluated in O(1) from the cached duration and load of the routes it changes
+ * Holds working arrays between calls, so one LocalSearch must only be used by one thread at a time
+ */
+public class LocalSearch {
+    private static final double EPSILON = 1e-9; // Smallest accepted improvement, guards against rounding loops
+    private static final int MAX_SEGMENT = 3; // Longest segment moved by Or-opt
+
+    private final Problem problem;
+    private final NeighbourLists neighbourLists;
+    private final int durationPenaltyRate;
+    private final int loadPenaltyRate;
+
+    private final int[][] routes; // Customers of every route, routes[r][0 .. sizes[r] - 1]
+    private final int[] sizes;
+    private final double[] durations;
+    private final int[] loads;
+    private final int[] startDepots;
+    private final int[] endDepots;
+    private final int[] routeOf; // Route by customer index
+    private final int[] positionOf; // Position in its route by customer index
+    private final int[] segment = new int[MAX_SEGMENT]; // Segment being moved by Or-opt
+
+    public LocalSearch(Problem problem, NeighbourLists neighbourLists, int durationPenaltyRate, int loadPenaltyRate) {
+        this.problem = problem;
+        this.neighbourLists = neighbourLists;
+        this.durationPenaltyRate = durationPenaltyRate;
+        this.loadPenaltyRate = loadPenaltyRate;
+
+        int customers = problem.getCustomersCount();
+        int routesCount = problem.getRoutesCount();
+        int size = problem.getDepotsCount() + customers;
+
+        routes = new int[routesCount][customers];
+        sizes = new int[routesCount];
+        durations = new double[routesCount];
+        loads = new int[routesCount];
+        startDepots = new int[routesCount];
+        endDepots = new int[routesCount];
+        routeOf = new int[size];
+        positionOf = new int[size];
+    }
+
+    /**
+     * Rewrites chromosome in place until no move improves the fitness, or the deadline passes
+     * @param chromosome
+     * @param deadline System.nanoTime() after which no more moves are tried
+     */
+    public void improve(Chromosome chromosome, long deadline) {
+        load(chromosome);
+
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = false;
+
+            for (int route = 0; route < sizes.length; route++) {
+                while (System.nanoTime() < deadline && (twoOpt(route) || orOpt(route))) {
+                    improved = true;
+                }
+            }
+
+            for (int customer = problem.getDepotsCount(); customer < routeOf.length && System.nanoTime() < deadline; customer++) {
+                if (relocate(customer) || swap(customer)) {
+                    improved = true;
+                }
+            }
+        }
+
+        store(chromosome);
+    }
+
+    private void load(Chromosome chromosome) {
+        for (int route = 0; route < sizes.length; route++) {
+            int routeStart = chromosome.getRouteStart(route);
+            sizes[route] = chromosome.getRouteSize(route);
+            startDepots[route] = chromosome.getStartDepot(route);
+            endDepots[route] = chromosome.getEndDepot(route);
+            loads[route] = 0;
+
+            for (int i = 0; i < sizes[route]; i++) {
+                int customer = chromosome.getCustomer(routeStart + i);
+                routes[route][i] = customer;
+                loads[route] += problem.getLoadDemand(customer);
+            }
+
+            durations[route] = calculateDuration(route);
+            updatePositions(route);
+        }
+    }
+
+    private void store(Chromosome chromosome) {
+        chromosome.clear();
+
+        for (int route = 0; route < sizes.length; route++) {
+            chromosome.beginRoute(route, startDepots[route], endDepots[route]);
+            for (int i = 0; i < sizes[route]; i++) {
+                chromosome.add(routes[route][i]);
+            }
+        }
+
+        chromosome.endRoutes();
+    }
+
+    /**
+     * Reverses the part of route between two positions if that shortens it
+     */
+    private boolean twoOpt(int route) {
+        int[] customers = routes[route];
+        int size = sizes[route];
+
+        for (int i = 0; i < size - 1; i++) {
+            int previous = previous(route, i);
+
+            for (int j = i + 1; j < size; j++) {
+                int next = next(route, j);
+                double delta = problem.distance(previous, customers[j]) + problem.distance(customers[i], next)
+                        - problem.distance(previous, customers[i]) - problem.distance(customers[j], next);
+
+                if (improves(route, durations[route] + delta, loads[route])) {
+                    for (int a = i, b = j; a < b; a++, b--) {
+                        int customer = customers[a];
+                        customers[a] = customers[b];
+                        customers[b] = customer;
+                    }
+
+                    durations[route] += delta;
+                    updatePositions(route);
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Moves a segment of 1-3 customers to another position of the same route if that shortens it
+     */
+    private boolean orOpt(int route) {
+        int[] customers = routes[route];
+        int size = sizes[route];
+
+        for (int length = 1; length <= MAX_SEGMENT; length++) {
+            for (int i = 0; i + length <= size; i++) {
+                int first = customers[i];
+                int last = customers[i + length - 1];
+                int previous = previous(route, i);
+                int next = next(route, i + length - 1);
+                double removeDelta = problem.distance(previous, next) - problem.distance(previous, first) - problem.distance(last, next);
+
+                for (int p = 0; p <= size; p++) {
+                    if (p >= i && p <= i + length) { // Same position
+                        continue;
+                    }
+
+                    int a = previous(route, p);
+                    int b = next(route, p - 1);
+                    double delta = removeDelta + problem.distance(a, first) + problem.distance(last, b) - problem.distance(a, b);
+
+                    if (improves(route, durations[route] + delta, loads[route])) {
+                        moveSegment(customers, i, length, p);
+                        durations[route] += delta;
+                        updatePositions(route);
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private void moveSegment(int[] customers, int from, int length, int to) {
+        System.arraycopy(customers, from, segment, 0, length);
+
+        if (to < from) {
+            System.arraycopy(customers, to, customers, to + length, from - to);
+            System.arraycopy(segment, 0, customers, to, length);
+        } else {
+            System.arraycopy(customers, from + length, customers, from, to - from - length);
+            System.arraycopy(segment, 0, customers, to - length, length);
+        }
+    }
+
+    /**
+     * Moves customer to another route, next to one of its nearest customers or into an empty route
+     */
+    private boolean relocate(int customer) {
+        int routeA = routeOf[customer];
+        int i = positionOf[customer];
+        int previous = previous(routeA, i);
+        int next = next(routeA, i);
+        int load = problem.getLoadDemand(customer);
+
+        double newDurationA = sizes[routeA] == 1 ? 0.0 : durations[routeA] + problem.distance(previous, next)
+                - problem.distance(previous, customer) - problem.distance(customer, next) - problem.getTimeDemand(customer);
+        double removeGain = cost(routeA, newDurationA, loads[routeA] - load) - cost(routeA, durations[routeA], loads[routeA]);
+
+        for (int n = 0; n < neighbourLists.getK(); n++) {
+            int neighbour = neighbourLists.get(customer, n);
+            int routeB = routeOf[neighbour];
+
+            if (routeB == routeA) {
+                continue;
+            }
+
+            for (int p = positionOf[neighbour]; p <= positionOf[neighbour] + 1; p++) { // Before and after neighbour
+                if (tryRelocate(customer, routeA, i, newDurationA, removeGain, routeB, p)) {
+                    return true;
+                }
+            }
+        }
+
+        int lastDepot = -1;
+        for (int routeB = 0; routeB < sizes.length; routeB++) { // First empty route of every depot
+            if (sizes[routeB] == 0 && startDepots[routeB] != lastDepot && routeB != routeA) {
+                lastDepot = startDepots[routeB];
+                if (tryRelocate(customer, routeA, i, newDurationA, removeGain, routeB, 0)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private boolean tryRelocate(int customer, int routeA, int i, double newDurationA, double removeGain, int routeB, int p) {
+        int a = previous(routeB, p);
+        int b = next(routeB, p - 1);
+        int load = problem.getLoadDemand(customer);
+        double newDurationB = durations[routeB] + problem.distance(a, customer) + problem.distance(customer, b)
+                + problem.getTimeDemand(customer) - (sizes[routeB] == 0 ? 0.0 : problem.distance(a, b));
+        double delta = removeGain + cost(routeB, newDurationB, loads[routeB] + load) - cost(routeB, durations[routeB], loads[routeB]);
+
+        if (delta > -EPSILON) {
+            return false;
+        }
+
+        System.arraycopy(routes[routeA], i + 1, routes[routeA], i, sizes[routeA] - i - 1);
+        sizes[routeA]--;
+        System.arraycopy(routes[routeB], p, routes[routeB], p + 1, sizes[routeB] - p);
+        routes[routeB][p] = customer;
+        sizes[routeB]++;
+
+        durations[routeA] = newDurationA;
+        durations[routeB] = newDurationB;
+        loads[routeA] -= load;
+        loads[routeB] += load;
+        updatePositions(routeA);
+        updatePositions(routeB);
+        return true;
+    }
+
+    /**
+     * Swaps customer with one of its nearest customers in another route
+     */
+    private boolean swap(int customer) {
+        int routeA = routeOf[customer];
+        int i = positionOf[customer];
+
+        for (int n = 0; n < neighbourLists.getK(); n++) {
+            int other = neighbourLists.get(customer, n);
+            int routeB = routeOf[other];
+
+            if (routeB == routeA) {
+                continue;
+            }
+
+            int j = positionOf[other];
+            double newDurationA = durations[routeA] + replaceDelta(routeA, i, customer, other);
+            double newDurationB = durations[routeB] + replaceDelta(routeB, j, other, customer);
+            int loadDelta = problem.getLoadDemand(other) - problem.getLoadDemand(customer);
+
+            double delta = cost(routeA, newDurationA, loads[routeA] + loadDelta) - cost(routeA, durations[routeA], loads[routeA])
+                    + cost(routeB, newDurationB, loads[routeB] - loadDelta) - cost(routeB, durations[routeB], loads[routeB]);
+
+            if (delta < -EPSILON) {
+                routes[routeA][i] = other;
+                routes[routeB][j] = customer;
+                durations[routeA] = newDurationA;
+                durations[routeB] = newDurationB;
+                loads[routeA] += loadDelta;
+                loads[routeB] -= loadDelta;
+                routeOf[customer] = routeB;
+                positionOf[customer] = j;
+                routeOf[other] = routeA;
+                positionOf[other] = i;
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return Change in duration of route if the customer at position is replaced by replacement
+     */
+    private double replaceDelta(int route, int position, int customer, int replacement) {
+        int previous = previous(route, position);
+        int next = next(route, position);
+
+        return problem.distance(previous, replacement) + problem.distance(replacement, next) + problem.getTimeDemand(replacement)
+                - problem.distance(previous, customer) - problem.distance(customer, next) - problem.getTimeDemand(customer);
+    }
+
+    /**
+     * @return Customer before position in route, or the start depot
+     */
+    private int previous(int route, int position) {
+        return position == 0 ? startDepots[route] : routes[route][position - 1];
+    }
+
+    /**
+     * @return Customer after position in route, or the end depot
+     */
+    private int next(int route, int position) {
+        return position + 1 >= sizes[route] ? endDepots[route] : routes[route][position + 1];
+    }
+
+    private boolean improves(int route, double newDuration, int newLoad) {
+        return cost(route, newDuration, newLoad) < cost(route, durations[route], loads[route]) - EPSILON;
+    }
+
+    /**
+     * @return Fitness contribution of route, as in Individual.calculateFitness()
+     */
+    private double cost(int route, double duration, int load) {
+        double cost = duration;
+        int depot = startDepots[route];
+
+        double maxDuration = problem.getMaxDuration(depot);
+        if (maxDuration != 0 && duration > maxDuration) {
+            cost += ((duration - maxDuration) * durationPenaltyRate);
+        }
+
+        int maxLoad = problem.getMaxLoad(depot);
+        if (maxLoad != 0 && load > maxLoad) {
+            cost += ((load - maxLoad) * loadPenaltyRate);
+        }
+
+        return cost;
+    }
+
+    private double calculateDuration(int route) {
+        if (sizes[route] == 0) {
+            return 0.0;
+        }
+
+        double duration = 0.0;
+        int previous = startDepots[route];
+
+        for (int i = 0; i < sizes[route]; i++) {
+            int customer = routes[route][i];
+            duration += problem.distance(previous, customer) + problem.getTimeDemand(customer);
+            previous = customer;
+        }
+
+        return duration + problem.distance(previous, endDepots[route]);
+    }
+
+    private void updatePositions(int route) {
+        for (int i = 0; i < sizes[route]; i++) {
+            routeOf[routes[route][i]] = route;
+            positionOf[routes[route][i]] = i;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package GeneticAlgorithm;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time per phase of a generation and invocation counts of the operators, shared by all Populations of a GeneticAlgorithm
+ * Populations and Problems hold null instead of a Metrics when metrics are off, so the only cost is a null check
+ * Every recorded interval also goes into a histogram with one bucket per power of two nanoseconds, for percentiles
+ * Counters are LongAdders, so breeding threads of parallel mode and islands record without contention.
+ * Phase times of breeding are summed over all breeding threads. EVALUATION is nested in the phases that evaluate children,
+ * and SORTING in REPLACEMENT
+ */
+public class Metrics {
+
+    /**
+     * Measured parts of Population.tick()
+     */
+    public enum Phase {
+        INITIAL_POPULATION("initialPopulation"), // generateInitialPopulation()
+        SELECTION("selection"), // Immigrants, roulette wheel and parent selection
+        CROSSOVER("crossover"), // Route or order crossover of a couple, order crossover includes Split
+        MUTATION("mutation"), // Mutation of the children of a couple
+        EDUCATION("education"), // LocalSearch of the children of a couple
+        EVALUATION("evaluation"), // Individual.calculateFitness(), inside the phases above
+        SORTING("sorting"), // Sorting the next generation by fitness, inside REPLACEMENT
+        REPLACEMENT("replacement"); // Saving parents, sorting, duplicate suppression and swapping generations
+
+        private final String key; // Name in statistics and JMX
+
+        Phase(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    /**
+     * Counted operators
+     */
+    public enum Operator {
+        ROUTE_CROSSOVER("routeCrossover"), // Individual.singlePointCrossOver(), one child
+        ORDER_CROSSOVER("orderCrossover"), // Population.orderCrossOver(), one child
+        SWAP_MUTATION("swapMutation"),
+        SWAP_MUTATION_2("swapMutation2"),
+        CROSS_MUTATION("crossMutation"),
+        GIANT_TOUR_MUTATION("giantTourMutation"), // Swap in a giant tour before Split
+        DEPOT_REASSIGNMENT("depotReassignment"), // Customer moved out of a depot Split could not cut into feasible routes
+        LOCAL_SEARCH("localSearch"), // LocalSearch.improve() of one child
+        IMMIGRANT("immigrant"); // Immigrant taken in from another island
+
+        private final String key; // Name in statistics and JMX
+
+        Operator(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private static final int BUCKETS = 64; // Bucket b holds intervals of [2^(b-1), 2^b> nanoseconds, bucket 0 holds 0
+
+    private final LongAdder[] phaseNanos = createAdders(Phase.values().length);
+    private final LongAdder[] phaseCounts = createAdders(Phase.values().length);
+    private final LongAdder[][] histograms = new LongAdder[Phase.values().length][];
+    private final LongAdder[] operatorCounts = createAdders(Operator.values().length);
+
+    public Metrics() {
+        for (int phase = 0; phase < histograms.length; phase++) {
+            histograms[phase] = createAdders(BUCKETS);
+        }
+    }
+
+    private static LongAdder[] createAdders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Records one interval of phase
+     * @param phase
+     * @param startNanoTime System.nanoTime() at the start of the interval
+     */
+    public void record(Phase phase, long startNanoTime) {
+        long nanos = System.nanoTime() - startNanoTime;
+        int index = phase.ordinal();
+
+        phaseNanos[index].add(nanos);
+        phaseCounts[index].increment();
+        histograms[index][Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)))].increment();
+    }
+
+    /**
+     * @param operator
+     * @param n Number of invocations
+     */
+    public void count(Operator operator, int n) {
+        operatorCounts[operator.ordinal()].add(n);
+    }
+
+    /**
+     * @param phase
+     * @return Total milliseconds recorded for phase
+     */
+    public double getMillis(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum() / 1000000.0;
+    }
+
+    /**
+     * @param phase
+     * @return Number of intervals recorded for phase
+     */
+    public long getCount(Phase phase) {
+        return phaseCounts[phase.ordinal()].sum();
+    }
+
+    /**
+     * Upper bound of the histogram bucket holding the percentile, so at most twice the exact value
+     * @param phase
+     * @param percentile (0, 100]
+     * @return Microseconds below which percentile percent of the intervals of phase fall, 0 if none were recorded
+     */
+    public double getPercentileMicros(Phase phase, double percentile) {
+        LongAdder[] histogram = histograms[phase.ordinal()];
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] = histogram[bucket].sum();
+            total += counts[bucket];
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank && counts[bucket] > 0) {
+                return bucket == 0 ? 0.0 : Math.pow(2, bucket) / 1000.0;
+            }
+        }
+
+        return 0.0;
+    }
+
+    public long getCount(Operator operator) {
+        return operatorCounts[operator.ordinal()].sum();
+    }
+
+    /**
+     * @return Number of Individual.calculateFitness() calls
+     */
+    public long getEvaluations() {
+        return getCount(Phase.EVALUATION);
+    }
+}
@@ -0,0 +1,274 @@
+package GeneticAlgorithm;
+
+/**
+ * Parameters of GeneticAlgorithm
+ * Defaults are the values used by the GUI
+ */
+public class Parameters {
+    private int populationSize = 70; // 20-100 dependent on problem
+    private double crossOverRate = 0.8; // 80%-95%
+    private double mutationRate = 0.03; // 0.5%-1%.
+    private int tournamentSize = 3; // Number of members in tournament selection
+    private int durationPenaltyRate = 20; // Penalty for over duration
+    private int loadPenaltyRate = 20; // Penalty for over load
+    private boolean elitism = true; // Elitism keeps the best parents from last generation
+    private int k = 3; // Number of splits in parents before doing crossOver
+    private boolean parallel = false; // Creates and evaluates children on a ForkJoinPool
+    private int parallelism = Runtime.getRuntime().availableProcessors(); // Number of worker threads in parallel mode
+    private int islands = 1; // Number of Populations in the island model, 1 runs a single Population
+    private int migrationInterval = 50; // Generations between migrations in the island model
+    private int migrants = 2; // Individuals sent to each neighbouring island per migration
+    private IslandModel.Topology topology = IslandModel.Topology.RING; // Neighbours of an island
+    private long seed = System.nanoTime(); // Seed of the random generator
+    private boolean granular = false; // Insertions only try positions next to one of the nearest customers
+    private int neighbours = 10; // Number of nearest customers per customer in granular mode and local search
+    private Population.Encoding encoding = Population.Encoding.ROUTES; // Representation used by crossover and mutation, GIANT_TOUR is experimental
+    private double educationRate = 0.0; // Share of children improved by local search, 0 turns education off
+    private long educationTimeLimit = 0; // Milliseconds of local search per generation, 0 is unlimited. Runs with a limit are not reproducible
+    private int fitnessCacheSize = 0; // Routes whose duration and load are cached per thread, 0 turns the cache off
+    private boolean duplicateSuppression = false; // Replacement keeps duplicates only when there are not enough unique Individuals
+    private double minDistance = 0.0; // Broken pairs distance below which an Individual counts as a duplicate, 0 only removes exact copies
+    private boolean metrics = false; // Times the phases of every generation and counts operators, see Metrics
+    private String improvementsPrefix = null; // Every improvement of the alpha is written to prefix-generation.res, null turns it off
+    private String generationLogFile = null; // NDJSON file the Solver logs every generation to, null turns the log off
+    private String checkpointFile = null; // File the Solver writes checkpoints to, null turns checkpoints off
+    private int checkpointInterval = 100; // Generations between checkpoints
+
+    public int getPopulationSize() {
+        return populationSize;
+    }
+
+    public void setPopulationSize(int populationSize) {
+        this.populationSize = populationSize;
+    }
+
+    public double getCrossOverRate() {
+        return crossOverRate;
+    }
+
+    public void setCrossOverRate(double crossOverRate) {
+        this.crossOverRate = crossOverRate;
+    }
+
+    public double getMutationRate() {
+        return mutationRate;
+    }
+
+    public void setMutationRate(double mutationRate) {
+        this.mutationRate = mutationRate;
+    }
+
+    public int getTournamentSize() {
+        return tournamentSize;
+    }
+
+    public void setTournamentSize(int tournamentSize) {
+        this.tournamentSize = tournamentSize;
+    }
+
+    /**
+     * @return Rate of children to produce each generation
+     */
+    public int getNumberOfChildren() {
+        return populationSize / 3;
+    }
+
+    /**
+     * @return Number of parents to save in filtering
+     */
+    public int getNumberOfParentsToSave() {
+        return populationSize / 20;
+    }
+
+    public int getDurationPenaltyRate() {
+        return durationPenaltyRate;
+    }
+
+    public void setDurationPenaltyRate(int durationPenaltyRate) {
+        this.durationPenaltyRate = durationPenaltyRate;
+    }
+
+    public int getLoadPenaltyRate() {
+        return loadPenaltyRate;
+    }
+
+    public void setLoadPenaltyRate(int loadPenaltyRate) {
+        this.loadPenaltyRate = loadPenaltyRate;
+    }
+
+    public boolean isElitism() {
+        return elitism;
+    }
+
+    public void setElitism(boolean elitism) {
+        this.elitism = elitism;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public void setK(int k) {
+        this.k = k;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getIslands() {
+        return islands;
+    }
+
+    public void setIslands(int islands) {
+        this.islands = islands;
+    }
+
+    public int getMigrationInterval() {
+        return migrationInterval;
+    }
+
+    public void setMigrationInterval(int migrationInterval) {
+        this.migrationInterval = migrationInterval;
+    }
+
+    public int getMigrants() {
+        return migrants;
+    }
+
+    public void setMigrants(int migrants) {
+        this.migrants = migrants;
+    }
+
+    public IslandModel.Topology getTopology() {
+        return topology;
+    }
+
+    public void setTopology(IslandModel.Topology topology) {
+        this.topology = topology;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public boolean isGranular() {
+        return granular;
+    }
+
+    public void setGranular(boolean granular) {
+        this.granular = granular;
+    }
+
+    public int getNeighbours() {
+        return neighbours;
+    }
+
+    public void setNeighbours(int neighbours) {
+        this.neighbours = neighbours;
+    }
+
+    public double getEducationRate() {
+        return educationRate;
+    }
+
+    public void setEducationRate(double educationRate) {
+        this.educationRate = educationRate;
+    }
+
+    public long getEducationTimeLimit() {
+        return educationTimeLimit;
+    }
+
+    public void setEducationTimeLimit(long educationTimeLimit) {
+        this.educationTimeLimit = educationTimeLimit;
+    }
+
+    public Population.Encoding getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(Population.Encoding encoding) {
+        this.encoding = encoding;
+    }
+
+    public int getFitnessCacheSize() {
+        return fitnessCacheSize;
+    }
+
+    public void setFitnessCacheSize(int fitnessCacheSize) {
+        this.fitnessCacheSize = fitnessCacheSize;
+    }
+
+    public boolean isDuplicateSuppression() {
+        return duplicateSuppression;
+    }
+
+    public void setDuplicateSuppression(boolean duplicateSuppression) {
+        this.duplicateSuppression = duplicateSuppression;
+    }
+
+    public double getMinDistance() {
+        return minDistance;
+    }
+
+    public void setMinDistance(double minDistance) {
+        this.minDistance = minDistance;
+    }
+
+    public boolean isMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(boolean metrics) {
+        this.metrics = metrics;
+    }
+
+    public String getImprovementsPrefix() {
+        return improvementsPrefix;
+    }
+
+    public void setImprovementsPrefix(String improvementsPrefix) {
+        this.improvementsPrefix = improvementsPrefix;
+    }
+
+    public String getGenerationLogFile() {
+        return generationLogFile;
+    }
+
+    public void setGenerationLogFile(String generationLogFile) {
+        this.generationLogFile = generationLogFile;
+    }
+
+    public String getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public void setCheckpointFile(String checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+}
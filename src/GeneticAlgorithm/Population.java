@@ -1,27 +1,49 @@
 package GeneticAlgorithm;
 
-import MapObjects.Customer;
+import Map.NeighbourLists;
 import MapObjects.Depot;
-import MapObjects.Vehicle;
+import Utils.LongHashSet;
+import Utils.Rng;
 import Utils.Utils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Population contains n Solutions. n = populationSize
+ * Individuals live in two preallocated buffers: the current generation, and the next generation which children are written to.
+ * The buffers are swapped at the end of tick(), so a generation only overwrites existing Individuals and Chromosomes
  */
 public class Population {
-    private List<Depot> depots;
-    private List<Individual> individuals = new ArrayList<>();
+    private static final int DEPOT_REPAIR_ROUNDS = 3; // Splits after moving customers out of infeasible depots, per giant tour child
+    private static final int DEPOT_REPAIR_SHARE = 20; // Every round moves 1 / DEPOT_REPAIR_SHARE of the customers of an infeasible depot
+
+    /**
+     * How children are bred
+     */
+    public enum Encoding {
+        ROUTES, // Route crossover and mutations on the routes of the Chromosome
+        GIANT_TOUR // Order crossover on one permutation of the customers per depot, decoded by Split
+    }
+
+    private Problem problem;
+    private Individual[] individuals; // Current generation, sorted by fitness, [0, size>
+    private Individual[] offspring; // Next generation, written by tick() and then swapped with individuals
+    private int size; // Number of Individuals in the current generation
 
     private Individual alphaIndividual; // Best Individual (with best fitness)
 
     private int generation = 0; // Increment after each tick() loop
-    private List<Double> generations = new ArrayList<>();
+    private double duplicateRateTotal; // Sum of the share of duplicate candidates in the replacement of every generation
+    private int duplicateRateCount; // Generations in duplicateRateTotal
 
     private int populationSize; // Number of Solutions in population
     private double crossOverRate;
@@ -34,32 +56,83 @@ public class Population {
     private boolean elitism;
     private int k;
 
+    private double[] cumulativeWeights; // Roulette wheel of the current generation, see buildRouletteWheel()
+    private Rng rng; // Random generator of this Population, installed on the thread running tick()
+    private ForkJoinPool forkJoinPool; // Creates and evaluates children in parallel, null in sequential mode
+    private double educationRate; // Share of children improved by LocalSearch, 0 turns education off
+    private long educationTimeLimit; // Milliseconds of LocalSearch per generation, 0 is unlimited
+    private long educationDeadline; // System.nanoTime() when education of the current generation stops
+    private Encoding encoding;
+    private int childrenPerCouple; // Children written by breed() for every couple
+    private ThreadLocal<Workspace> workspace; // Scratch memory per breeding thread
+    private int[] mothers; // Index of the first parent of every couple in this generation
+    private int[] fathers; // Index of the second parent of every couple in this generation
+    private boolean[] removedParents; // Parents that can not be saved for the next generation, without elitism
+    private ForkJoinTask<?>[] tasks; // Breeding tasks of this generation in parallel mode
+    private boolean duplicateSuppression; // Duplicates only survive replacement when there are not enough unique candidates
+    private double minDistance; // Broken pairs distance below which a candidate counts as a duplicate of the next better one, 0 turns it off
+    private LongHashSet survivorHashes; // Chromosome hashes of the candidates kept in replacement
+    private Individual[] duplicates; // Duplicate candidates, moved behind the unique ones
+    private Individual[] distinct; // Candidates of replacement that clone no better candidate, compared when their hash repeats
+    private int[] pairNeighbours; // Scratch memory of Chromosome.getBrokenPairsDistance()
+    private Queue<Individual> immigrants = new ConcurrentLinkedQueue<>(); // Individuals sent from other islands in IslandModel
+    private Metrics metrics; // Phase times and operator counts, null when metrics are off
+
     /**
-     * Sets parameters
+     * Copies the parameters of the genetic algorithm
      * Generates initial population which generates n random Solutions. n = populationSize
+     * @param metrics Phase times and operator counts, null when metrics are off
+     * @param rng Random generator of this Population, a split of the seed per island in IslandModel
      */
-    public Population(List<Depot> depots,
-                      int populationSize,
-                      double crossOverRate,
-                      double mutationRate,
-                      int tournamentSize,
-                      int numberOfChildren,
-                      int numberOfParentsToSave,
-                      int durationPenaltyRate,
-                      int loadPenaltyRate,
-                      boolean elitism,
-                      int k) {
-        this.depots = depots;
-        this.populationSize = populationSize;
-        this.crossOverRate = crossOverRate;
-        this.mutationRate = mutationRate;
-        this.tournamentSize = tournamentSize;
-        this.numberOfChildren = numberOfChildren;
-        this.numberOfParentsToSave = numberOfParentsToSave;
-        this.durationPenaltyRate = durationPenaltyRate;
-        this.loadPenaltyRate = loadPenaltyRate;
-        this.elitism = elitism;
-        this.k = k;
+    public Population(List<Depot> depots, Parameters parameters, Metrics metrics, Rng rng) {
+        int neighbours = parameters.getNeighbours();
+        this.problem = new Problem(depots, parameters.isGranular() ? neighbours : 0, parameters.getFitnessCacheSize(), metrics);
+        this.metrics = metrics;
+        this.populationSize = parameters.getPopulationSize();
+        this.crossOverRate = parameters.getCrossOverRate();
+        this.mutationRate = parameters.getMutationRate();
+        this.tournamentSize = parameters.getTournamentSize();
+        this.numberOfChildren = parameters.getNumberOfChildren();
+        this.numberOfParentsToSave = parameters.getNumberOfParentsToSave();
+        this.durationPenaltyRate = parameters.getDurationPenaltyRate();
+        this.loadPenaltyRate = parameters.getLoadPenaltyRate();
+        this.elitism = parameters.isElitism();
+        this.k = parameters.getK();
+        this.rng = rng;
+        this.educationRate = parameters.getEducationRate();
+        this.educationTimeLimit = parameters.getEducationTimeLimit();
+
+        this.encoding = parameters.getEncoding();
+        this.childrenPerCouple = encoding == Encoding.GIANT_TOUR ? 2 : 2 * k;
+
+        NeighbourLists neighbourLists = educationRate > 0 ? problem.getDistanceMatrix().getNeighbourLists(neighbours) : null;
+        this.workspace = ThreadLocal.withInitial(() -> new Workspace(problem, k,
+                neighbourLists != null ? new LocalSearch(problem, neighbourLists, durationPenaltyRate, loadPenaltyRate) : null,
+                encoding == Encoding.GIANT_TOUR ? new Split(problem, durationPenaltyRate, loadPenaltyRate) : null));
+
+        int capacity = Math.max(populationSize, numberOfChildren * childrenPerCouple + numberOfParentsToSave);
+        this.individuals = new Individual[capacity];
+        this.offspring = new Individual[capacity];
+        for (int i = 0; i < capacity; i++) {
+            individuals[i] = createSlot();
+            offspring[i] = createSlot();
+        }
+
+        this.mothers = new int[numberOfChildren];
+        this.fathers = new int[numberOfChildren];
+        this.removedParents = new boolean[capacity];
+        this.tasks = new ForkJoinTask<?>[numberOfChildren];
+
+        this.duplicateSuppression = parameters.isDuplicateSuppression();
+        this.minDistance = parameters.getMinDistance();
+        this.survivorHashes = new LongHashSet(capacity);
+        this.duplicates = new Individual[capacity];
+        this.distinct = new Individual[capacity];
+        this.pairNeighbours = new int[2 * (problem.getDepotsCount() + problem.getCustomersCount())];
+
+        if (parameters.isParallel()) {
+            this.forkJoinPool = new ForkJoinPool(parameters.getParallelism());
+        }
     }
 
     /**
@@ -68,68 +141,199 @@ public class Population {
      * 1. Selection
      * 2. Crossover
      * 3. Mutation
-     * 4. Calculate fitness
-     * 5. Filtering
+     * 4. Education (local search)
+     * 5. Calculate fitness
+     * 6. Filtering
      */
     public void tick() {
+        Rng.setCurrent(rng);
+
         if (generation == 0) {
+            long startNanoTime = startTimer();
             generateInitialPopulation();
-            individuals.sort(Comparator.comparingDouble(Individual::getFitness));
+            sortByFitness(individuals, size);
+            stopTimer(Metrics.Phase.INITIAL_POPULATION, startNanoTime);
         } else {
-            List<Individual> children = new ArrayList<>();
-            List<Individual> parentsToRemove = new ArrayList<>();
+            long startNanoTime = startTimer();
+            receiveImmigrants();
+            buildRouletteWheel();
+            educationDeadline = educationTimeLimit > 0 ? System.nanoTime() + educationTimeLimit * 1_000_000 : Long.MAX_VALUE;
+
+            int couples = 0;
             for (int i = 0; i < numberOfChildren; i++) { // Would this actually make 2*numberOfChildren?
-                Individual[] parents = selection();
+                int couple = couples; // Slot of the selected parents, reused by the next selection if they do not cross over
+                selection(couple);
 
                 // Parents get to crossover if random is less than crossOverRate
                 double random = Utils.randomDouble();
                 if (random < crossOverRate) {
-                    children.addAll(crossOver(parents));
+                    couples++;
                 }
 
-                if (!elitism && children.size() != 0) {
-                    parentsToRemove.addAll(List.of(parents[0], parents[1]));
+                if (!elitism && couples != 0) { // The parents selected now, whether or not they cross over
+                    removedParents[mothers[couple]] = true;
+                    removedParents[fathers[couple]] = true;
                 }
             }
+            stopTimer(Metrics.Phase.SELECTION, startNanoTime);
 
-            List<Individual> childrenToAdd = new ArrayList<>();
-            for (Individual child : children) {
-                double random = Utils.randomDouble();
-                if (random < mutationRate) {
-                    // TODO: Optimize parameters
-                    random = Utils.randomDouble();
-
-                    Individual mutatedChild;
-
-                    if (random <= 0.33) {
-                        mutatedChild = new Individual(depots, durationPenaltyRate, loadPenaltyRate, child.swapMutation());
-                    } else if (random <= 0.66) {
-                        mutatedChild = new Individual(depots, durationPenaltyRate, loadPenaltyRate, child.swapMutation2());
-                    } else {
-                        mutatedChild = new Individual(depots, durationPenaltyRate, loadPenaltyRate, child.crossMutation());
-                    }
-                    childrenToAdd.add(mutatedChild);
-                } else {
-                    childrenToAdd.add(child);
+            if (forkJoinPool == null) {
+                for (int couple = 0; couple < couples; couple++) {
+                    breed(couple);
                 }
+            } else {
+                breedInParallel(couples);
             }
 
-            if (!elitism) {
-                individuals.removeAll(parentsToRemove);
+            startNanoTime = startTimer();
+            int nextSize = couples * childrenPerCouple;
+            int parentsSaved = 0;
+            for (int i = 0; i < size && parentsSaved < numberOfParentsToSave; i++) {
+                if (!removedParents[i]) {
+                    offspring[nextSize++].copyFrom(individuals[i]);
+                    parentsSaved++;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                removedParents[i] = false;
             }
 
-            individuals.sort(Comparator.comparingDouble(Individual::getFitness)); // Sort by fitness
-            List<Individual> parentsToSave = new ArrayList<>(individuals.subList(0, numberOfParentsToSave));
-            individuals = childrenToAdd;
-            individuals.addAll(parentsToSave);
-            individuals.sort(Comparator.comparingDouble(Individual::getFitness)); // Sort by fitness
-            individuals = individuals.stream().limit(populationSize).collect(Collectors.toList()); // Cut population to population size
+            long sortingNanoTime = startTimer();
+            sortByFitness(offspring, nextSize);
+            stopTimer(Metrics.Phase.SORTING, sortingNanoTime);
+
+            replaceDuplicates(nextSize);
+
+            Individual[] previous = individuals;
+            individuals = offspring;
+            offspring = previous;
+            size = Math.min(nextSize, populationSize); // Cut population to population size
+            stopTimer(Metrics.Phase.REPLACEMENT, startNanoTime);
+        }
+
+        if (alphaIndividual == null || individuals[0].getFitness() != alphaIndividual.getFitness()) {
+            alphaIndividual = individuals[0].copy(); // Copied, since the slot is overwritten two generations later
         }
-        alphaIndividual = individuals.get(0);
-        generations.add(getAlphaFitness());
         generation++;
     }
 
+    /**
+     * Finds the candidates of the sorted next generation that duplicate a better candidate: the same Chromosome, see isClone(),
+     * or a broken pairs distance below minDistance to the previous unique candidate (near duplicates are close in fitness)
+     * With duplicate suppression, duplicates are moved behind the unique candidates so they are only kept to fill the population
+     * Records the duplicate rate either way
+     *
+     * @param n Number of candidates in offspring
+     */
+    private void replaceDuplicates(int n) {
+        survivorHashes.clear();
+        int unique = 0;
+        int distinctCount = 0;
+        int duplicateCount = 0;
+        Individual previous = null;
+
+        for (int i = 0; i < n; i++) {
+            Individual candidate = offspring[i];
+            boolean duplicate = !survivorHashes.add(candidate.getChromosome().getHash()) && isCloneOfDistinct(candidate, distinctCount);
+            if (!duplicate) {
+                distinct[distinctCount++] = candidate;
+            }
+
+            if (!duplicate && minDistance > 0 && previous != null) {
+                duplicate = candidate.getChromosome().getBrokenPairsDistance(previous.getChromosome(), pairNeighbours) < minDistance;
+            }
+
+            if (duplicate) {
+                duplicates[duplicateCount++] = candidate;
+            } else {
+                if (duplicateSuppression) {
+                    offspring[unique] = candidate; // unique <= i, so this only overwrites candidates already seen
+                }
+                unique++;
+                previous = candidate;
+            }
+        }
+
+        if (duplicateSuppression && duplicateCount > 0) {
+            System.arraycopy(duplicates, 0, offspring, unique, duplicateCount);
+
+            if (unique < populationSize) { // Duplicates fill the population, which must stay sorted for selection
+                sortByFitness(offspring, Math.min(n, populationSize));
+            }
+        }
+
+        duplicateRateTotal += n == 0 ? 0.0 : (double) duplicateCount / n;
+        duplicateRateCount++;
+    }
+
+    /**
+     * Looks for the better candidate whose hash candidate repeats, from the last one, since clones are sorted next to each other
+     * @param distinctCount Number of distinct candidates so far
+     */
+    private boolean isCloneOfDistinct(Individual candidate, int distinctCount) {
+        for (int i = distinctCount - 1; i >= 0; i--) {
+            if (isClone(candidate.getChromosome(), distinct[i].getChromosome())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Equal hashes are confirmed by the broken pairs distance, since different Chromosomes can share a hash
+     */
+    private boolean isClone(Chromosome chromosome, Chromosome other) {
+        return chromosome.getHash() == other.getHash() && chromosome.getBrokenPairsDistance(other, pairNeighbours) == 0;
+    }
+
+    /**
+     * @return System.nanoTime() when metrics are on, 0 otherwise
+     */
+    private long startTimer() {
+        return metrics != null ? System.nanoTime() : 0;
+    }
+
+    private void stopTimer(Metrics.Phase phase, long startNanoTime) {
+        if (metrics != null) {
+            metrics.record(phase, startNanoTime);
+        }
+    }
+
+    private void count(Metrics.Operator operator) {
+        count(operator, 1);
+    }
+
+    private void count(Metrics.Operator operator, int n) {
+        if (metrics != null) {
+            metrics.count(operator, n);
+        }
+    }
+
+    /**
+     * @return Empty Individual owned by one of the generation buffers
+     */
+    private Individual createSlot() {
+        return new Individual(problem, durationPenaltyRate, loadPenaltyRate, new Chromosome(problem.getCustomersCount(), problem.getRoutesCount()));
+    }
+
+    /**
+     * Stable insertion sort by fitness, which does not allocate
+     * Most of the current generation is already sorted, so this is close to linear
+     */
+    private static void sortByFitness(Individual[] buffer, int n) {
+        for (int i = 1; i < n; i++) {
+            Individual individual = buffer[i];
+            int j = i - 1;
+
+            while (j >= 0 && buffer[j].getFitness() > individual.getFitness()) {
+                buffer[j + 1] = buffer[j];
+                j--;
+            }
+
+            buffer[j + 1] = individual;
+        }
+    }
+
     /**
      * Generates initial population which generates n random Solutions. n = populationSize
      */
@@ -137,12 +341,12 @@ public class Population {
         int triesLeft = 1000;
         boolean force = false;
 
-        while (individuals.size() != populationSize) {
+        while (size != populationSize) {
             if (triesLeft == 0) {
                 force = true;
             }
 
-            Individual individual = new Individual(depots, durationPenaltyRate, loadPenaltyRate);
+            Individual individual = new Individual(problem, durationPenaltyRate, loadPenaltyRate);
 
             // TODO: Parameter optimize
 //            boolean successful = individual.generateOptimizedIndividual(force);
@@ -151,95 +355,551 @@ public class Population {
 
             if (successful) {
                 individual.calculateFitness();
-                individuals.add(individual);
+                individuals[size++] = individual;
             } else {
                 triesLeft--;
             }
         }
 
         if (triesLeft == 0) {
-//            throw new Error("Generating initial population failed - created " + individuals.size() + " of " + populationSize + " individuals");
+//            throw new Error("Generating initial population failed - created " + size + " of " + populationSize + " individuals");
             System.out.println("Generated population with constraint break");
         }
     }
 
-    private List<Individual> crossOver(Individual[] parents) {
-        List<Vehicle> solutionVehicles = parents[0].getVehicles();
-        int randIndex = Utils.randomIndex(solutionVehicles.size());
-        Vehicle solutionVehicle = solutionVehicles.get(randIndex);
+    /**
+     * Crossover, mutation and education of one couple
+     * Writes the children to the offspring slots of the couple
+     * Safe to run concurrently: parents are only read, every couple has its own slots
+     *
+     * @param couple
+     */
+    private void breed(int couple) {
+        Workspace workspace = this.workspace.get();
+        Individual mother = individuals[mothers[couple]];
+        Individual father = individuals[fathers[couple]];
+        int firstChild = couple * childrenPerCouple;
+
+        long startNanoTime = startTimer();
+        if (encoding == Encoding.GIANT_TOUR) {
+            orderCrossOver(mother.getChromosome(), father.getChromosome(), offspring[firstChild], workspace); // Giant tours are mutated before Split
+            orderCrossOver(father.getChromosome(), mother.getChromosome(), offspring[firstChild + 1], workspace);
+            stopTimer(Metrics.Phase.CROSSOVER, startNanoTime);
+        } else {
+            crossOver(mother, father, firstChild, workspace);
+            stopTimer(Metrics.Phase.CROSSOVER, startNanoTime);
+
+            startNanoTime = startTimer();
+            for (int i = firstChild; i < firstChild + childrenPerCouple; i++) {
+                mutate(offspring[i], workspace);
+            }
+            stopTimer(Metrics.Phase.MUTATION, startNanoTime);
+        }
+
+        if (educationRate > 0) {
+            startNanoTime = startTimer();
+            for (int i = firstChild; i < firstChild + childrenPerCouple; i++) {
+                if (Utils.randomDouble() < educationRate && System.nanoTime() < educationDeadline) {
+                    workspace.getLocalSearch().improve(offspring[i].getChromosome(), educationDeadline);
+                    offspring[i].calculateFitness();
+                    count(Metrics.Operator.LOCAL_SEARCH);
+                }
+            }
+            stopTimer(Metrics.Phase.EDUCATION, startNanoTime);
+        }
+    }
+
+    /**
+     * Mutates child in place, or leaves it as it is
+     * @param child
+     * @param workspace
+     */
+    private void mutate(Individual child, Workspace workspace) {
+        double random = Utils.randomDouble();
+        if (random < mutationRate) {
+            // TODO: Optimize parameters
+            random = Utils.randomDouble();
+
+            if (random <= 0.33) {
+                child.swapMutation();
+                count(Metrics.Operator.SWAP_MUTATION);
+            } else if (random <= 0.66) {
+                child.swapMutation2();
+                count(Metrics.Operator.SWAP_MUTATION_2);
+            } else {
+                child.crossMutation(workspace.getScratchChromosome());
+                count(Metrics.Operator.CROSS_MUTATION);
+            }
+        }
+    }
+
+    /**
+     * Breeds every couple as a separate task in forkJoinPool
+     * Each task reseeds the random generator of its worker with a seed drawn in couple order,
+     * so the result does not depend on which worker runs which task
+     *
+     * @param couples
+     */
+    private void breedInParallel(int couples) {
+        for (int couple = 0; couple < couples; couple++) {
+            long seed = rng.nextLong();
+            int task = couple;
+            tasks[couple] = forkJoinPool.submit(() -> {
+                Rng.current().setSeed(seed);
+                breed(task);
+            });
+        }
+
+        for (int couple = 0; couple < couples; couple++) {
+            tasks[couple].join();
+            tasks[couple] = null;
+        }
+    }
+
+    /**
+     * Stops the worker threads of parallel mode
+     */
+    public void shutdown() {
+        if (forkJoinPool != null) {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    /**
+     * Queues a copy of individual to replace one of the worst Individuals at the start of next tick()
+     * Can be called from any thread
+     *
+     * @param individual
+     */
+    public void addImmigrant(Individual individual) {
+        immigrants.offer(individual.copy());
+    }
+
+    /**
+     * Replaces the worst Individuals with the queued immigrants
+     * Runs on the thread calling tick(), so individuals is never shared
+     */
+    private void receiveImmigrants() {
+        int replaceIndex = size - 1;
+        Individual immigrant;
+
+        while (replaceIndex >= 0 && (immigrant = immigrants.poll()) != null) {
+            individuals[replaceIndex].copyFrom(immigrant);
+            replaceIndex--;
+            count(Metrics.Operator.IMMIGRANT);
+        }
+
+        if (replaceIndex != size - 1) {
+            sortByFitness(individuals, size);
+        }
+    }
+
+    /**
+     * @param n
+     * @return Copies of the n best Individuals, sorted by fitness. Copied, since the slots are reused by later generations
+     */
+    public List<Individual> getBestIndividuals(int n) {
+        List<Individual> bestIndividuals = new ArrayList<>();
+        for (int i = 0; i < Math.min(n, size); i++) {
+            bestIndividuals.add(individuals[i].copy());
+        }
+        return bestIndividuals;
+    }
+
+    /**
+     * Writes everything the next tick() depends on: generation, histories, random generator, alpha, Individuals and queued immigrants
+     * Fitness is not written, readState() evaluates the Chromosomes again. Must not run concurrently with tick()
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(problem.getCustomersCount());
+        out.writeInt(problem.getRoutesCount());
+        out.writeInt(generation);
+
+        long[] rngState = rng.getState();
+        out.writeLong(rngState[0]);
+        out.writeLong(rngState[1]);
+
+        out.writeDouble(duplicateRateTotal);
+        out.writeInt(duplicateRateCount);
+
+        out.writeBoolean(alphaIndividual != null);
+        if (alphaIndividual != null) {
+            alphaIndividual.getChromosome().write(out);
+        }
+
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            individuals[i].getChromosome().write(out);
+        }
+
+        List<Individual> queued = new ArrayList<>(immigrants);
+        out.writeInt(queued.size());
+        for (Individual immigrant : queued) {
+            immigrant.getChromosome().write(out);
+        }
+    }
+
+    /**
+     * Replaces the state of this Population with one written by writeState() from a Population of the same Map and parameters
+     * The next tick() then continues exactly as the written Population would have
+     *
+     * @param in
+     * @throws IOException If the state belongs to another Map or does not fit the population
+     */
+    public void readState(DataInput in) throws IOException {
+        int customers = in.readInt();
+        int routes = in.readInt();
+        if (customers != problem.getCustomersCount() || routes != problem.getRoutesCount()) {
+            throw new IOException("State has " + customers + " customers and " + routes + " routes, expected "
+                    + problem.getCustomersCount() + " and " + problem.getRoutesCount());
+        }
+
+        generation = in.readInt();
+        rng.setState(new long[]{in.readLong(), in.readLong()});
+
+        duplicateRateTotal = in.readDouble();
+        duplicateRateCount = in.readInt();
+
+        alphaIndividual = in.readBoolean() ? readIndividual(in) : null;
+
+        int newSize = in.readInt();
+        if (newSize < 0 || newSize > individuals.length) {
+            throw new IOException("State has " + newSize + " Individuals, at most " + individuals.length + " fit");
+        }
+        size = newSize;
+        for (int i = 0; i < size; i++) {
+            individuals[i].getChromosome().read(in);
+            individuals[i].calculateFitness();
+        }
+
+        immigrants.clear();
+        int queued = in.readInt();
+        for (int i = 0; i < queued; i++) {
+            immigrants.offer(readIndividual(in));
+        }
+    }
+
+    /**
+     * @param in
+     * @return New Individual of this Population's Problem with a Chromosome written by Chromosome.write()
+     * @throws IOException
+     */
+    Individual readIndividual(DataInput in) throws IOException {
+        Individual individual = createSlot();
+        individual.getChromosome().read(in);
+        individual.calculateFitness();
+        return individual;
+    }
+
+    /**
+     * Splits a random route of each parent into k segments, and inserts every segment into the other parent
+     * Writes 2 * k children, starting at offspring[firstChild]
+     */
+    private void crossOver(Individual mother, Individual father, int firstChild, Workspace workspace) {
+        Chromosome solution = mother.getChromosome();
+        int solutionRoute = Utils.randomIndex(solution.getRoutesCount());
 
-        List<Vehicle> partnerVehicles = parents[1].getVehicles();
-        int randIndex2 = Utils.randomIndex(parents[1].getVehicles().size());
+        Chromosome partner = father.getChromosome();
+        int partnerRoute = Utils.randomIndex(partner.getRoutesCount());
 
-        Vehicle partnerVehicle = partnerVehicles.get(randIndex2);
-        ArrayList<ArrayList<Customer>> partsFromS1 = Utils.splitRoute(solutionVehicle.getRoute(), k);
-        ArrayList<ArrayList<Customer>> partsFromS2 = Utils.splitRoute(partnerVehicle.getRoute(), k);
+        int[] partsFromS1 = workspace.getPartitionIndices();
+        int[] partsFromS2 = workspace.getPartnerPartitionIndices();
+        Utils.splitRoute(solution.getRouteSize(solutionRoute), k, partsFromS1);
+        Utils.splitRoute(partner.getRouteSize(partnerRoute), k, partsFromS2);
 
-        List<Individual> children = new ArrayList<>();
+        int solutionStart = solution.getRouteStart(solutionRoute);
+        int partnerStart = partner.getRouteStart(partnerRoute);
 
         for (int i = 0; i < k; i++) {
-            List<Vehicle> newVehicles = parents[0].singlePointCrossOver(partsFromS2.get(i));
-            List<Vehicle> newVehicles2 = parents[1].singlePointCrossOver(partsFromS1.get(i));
-            children.add(new Individual(depots, durationPenaltyRate, loadPenaltyRate, newVehicles));
-            children.add(new Individual(depots, durationPenaltyRate, loadPenaltyRate, newVehicles2));
+            mother.singlePointCrossOver(partner, partnerStart + partsFromS2[i], partnerStart + partsFromS2[i + 1], offspring[firstChild + 2 * i], workspace);
+            father.singlePointCrossOver(solution, solutionStart + partsFromS1[i], solutionStart + partsFromS1[i + 1], offspring[firstChild + 2 * i + 1], workspace);
+        }
+
+        count(Metrics.Operator.ROUTE_CROSSOVER, 2 * k);
+    }
+
+    /**
+     * Order crossover (OX) of the giant tours of a couple, then Split into child
+     * The giant tour of a Chromosome is its customers in visiting order, one permutation per depot
+     * Every depot keeps its customers in parent and a random slice of their order,
+     * the other customers of the depot follow in the order partner visits them
+     */
+    private void orderCrossOver(Chromosome parent, Chromosome partner, Individual child, Workspace workspace) {
+        int depots = problem.getDepotsCount();
+        int customers = parent.getCustomersCount();
+        int[] depotStart = workspace.getDepotStart();
+        int[] cursor = workspace.getDepotCursor(); // Next position to fill per depot, relative to depotStart
+        int[] depotOf = workspace.getDepotOf(); // Depot of every customer in parent, -1 if it is in a slice
+        int[] childTour = workspace.getGiantTour();
+
+        for (int depot = 0; depot < depots; depot++) {
+            depotStart[depot] = parent.getRouteStart(problem.getFirstRoute(depot));
+        }
+        depotStart[depots] = customers;
+
+        for (int depot = 0; depot < depots; depot++) {
+            int start = depotStart[depot];
+            int n = depotStart[depot + 1] - start;
+            if (n == 0) {
+                continue;
+            }
+
+            int from = Utils.randomIndex(n);
+            int to = Utils.randomIndex(n);
+            if (from > to) {
+                int temp = from;
+                from = to;
+                to = temp;
+            }
+
+            for (int i = 0; i < n; i++) {
+                int customer = parent.getCustomer(start + i);
+                if (i >= from && i <= to) {
+                    childTour[start + i] = customer;
+                    depotOf[customer] = -1;
+                } else {
+                    depotOf[customer] = depot;
+                }
+            }
+
+            cursor[depot] = (to + 1) % n;
+        }
+
+        for (int position = 0; position < customers; position++) {
+            int customer = partner.getCustomer(position);
+            int depot = depotOf[customer];
+
+            if (depot != -1) {
+                int n = depotStart[depot + 1] - depotStart[depot];
+                childTour[depotStart[depot] + cursor[depot]] = customer;
+                cursor[depot] = (cursor[depot] + 1) % n;
+            }
         }
 
-        return children;
+        if (Utils.randomDouble() < mutationRate) {
+            swapMutation(childTour);
+            count(Metrics.Operator.GIANT_TOUR_MUTATION);
+        }
+
+        Split split = workspace.getSplit();
+        split.decode(childTour, depotStart, child.getChromosome());
+        for (int round = 0; round < DEPOT_REPAIR_ROUNDS && reassignCustomers(childTour, depotStart, split, workspace); round++) {
+            split.decode(childTour, depotStart, child.getChromosome());
+        }
+        child.calculateFitness();
+        count(Metrics.Operator.ORDER_CROSSOVER);
     }
 
-    private Individual[] selection() {
+    /**
+     * Moves customers out of the depots Split could not cut into feasible routes, a share of them per call
+     * Each move takes the customer and depot that add the least distance, among the depots with a feasible split,
+     * a spare vehicle and room for the load. Customers that moved are appended to the tour of their new depot.
+     * The order crossover keeps the depot of every customer, so without this an infeasible depot assignment is almost never repaired
+     *
+     * @param tour giant tour, rewritten if a customer moves
+     * @param depotStart first position of every depot in tour, updated if a customer moves
+     * @param split holding the result of decoding tour
+     * @return True if a customer moved
+     */
+    private boolean reassignCustomers(int[] tour, int[] depotStart, Split split, Workspace workspace) {
+        int depots = problem.getDepotsCount();
+        int[] depotLoad = workspace.getDepotLoad();
+        int[] depotOf = workspace.getDepotOf();
+
+        for (int depot = 0; depot < depots; depot++) {
+            depotLoad[depot] = 0;
+            for (int position = depotStart[depot]; position < depotStart[depot + 1]; position++) {
+                depotOf[tour[position]] = depot;
+                depotLoad[depot] += problem.getLoadDemand(tour[position]);
+            }
+        }
+
+        boolean moved = false;
+        for (int depot = 0; depot < depots; depot++) {
+            if (split.isFeasible(depot)) {
+                continue;
+            }
+
+            int moves = Math.max(1, (depotStart[depot + 1] - depotStart[depot]) / DEPOT_REPAIR_SHARE);
+            for (int move = 0; move < moves; move++) {
+                int bestCustomer = -1;
+                int bestDepot = -1;
+                double bestIncrease = Double.MAX_VALUE;
+
+                for (int position = depotStart[depot]; position < depotStart[depot + 1]; position++) {
+                    int customer = tour[position];
+                    if (depotOf[customer] != depot) { // Already moved
+                        continue;
+                    }
+
+                    for (int other = 0; other < depots; other++) {
+                        if (other == depot || !split.hasSpareVehicle(other) || !hasSpareLoad(other, depotLoad[other] + problem.getLoadDemand(customer))) {
+                            continue;
+                        }
+
+                        double increase = problem.distance(customer, other) - problem.distance(customer, depot);
+                        if (increase < bestIncrease) {
+                            bestIncrease = increase;
+                            bestCustomer = customer;
+                            bestDepot = other;
+                        }
+                    }
+                }
+
+                if (bestCustomer == -1) { // No other depot has room
+                    break;
+                }
+
+                depotOf[bestCustomer] = bestDepot;
+                depotLoad[depot] -= problem.getLoadDemand(bestCustomer);
+                depotLoad[bestDepot] += problem.getLoadDemand(bestCustomer);
+                moved = true;
+                count(Metrics.Operator.DEPOT_REASSIGNMENT);
+            }
+        }
+
+        if (!moved) {
+            return false;
+        }
+
+        int[] reassignedTour = workspace.getReassignedTour();
+        int[] newStart = workspace.getDepotCursor();
+        int length = 0;
+
+        for (int depot = 0; depot < depots; depot++) {
+            newStart[depot] = length;
+            for (int position = depotStart[depot]; position < depotStart[depot + 1]; position++) { // Customers that stay, in order
+                if (depotOf[tour[position]] == depot) {
+                    reassignedTour[length++] = tour[position];
+                }
+            }
+            for (int position = 0; position < tour.length; position++) { // Customers moved in
+                if (depotOf[tour[position]] == depot && (position < depotStart[depot] || position >= depotStart[depot + 1])) {
+                    reassignedTour[length++] = tour[position];
+                }
+            }
+        }
+
+        System.arraycopy(reassignedTour, 0, tour, 0, length);
+        System.arraycopy(newStart, 0, depotStart, 0, depots);
+        return true;
+    }
+
+    /**
+     * @return True if load fits in all vehicles of depot together, always true without max load
+     */
+    private boolean hasSpareLoad(int depot, int load) {
+        int maxLoad = problem.getMaxLoad(depot);
+        return maxLoad == 0 || load <= maxLoad * problem.getMaxVehicles(depot);
+    }
+
+    /**
+     * Swaps two random customers of a giant tour, moving them to each other's depot if they are in different depots
+     */
+    private void swapMutation(int[] tour) {
+        int a = Utils.randomIndex(tour.length);
+        int b = Utils.randomIndex(tour.length);
+        int customer = tour[a];
+        tour[a] = tour[b];
+        tour[b] = customer;
+    }
+
+    /**
+     * Selects two different parents as mothers[couple] and fathers[couple]
+     */
+    private void selection(int couple) {
         // TODO: Optimize parameters
-//        Individual parent1 = tournament();
-        Individual parent1 = rouletteWheel();
-        Individual parent2 = parent1;
+//        int parent1 = tournament();
+        int parent1 = rouletteWheel();
+        int parent2 = parent1;
+        int triesLeft = duplicateSuppression ? size : 0; // Identical parents only produce copies of themselves
 
-        while (parent1 == parent2) {
+        while (parent1 == parent2 || (triesLeft-- > 0 && isDuplicate(parent1, parent2))) {
 //            parent2 = tournament();
             parent2 = rouletteWheel();
         }
 
-        return new Individual[]{parent1, parent2};
+        mothers[couple] = parent1;
+        fathers[couple] = parent2;
     }
 
-    private Individual rouletteWheel() {
-        double totalFitness = getTotalFitness();
+    private boolean isDuplicate(int individual, int other) {
+        return isClone(individuals[individual].getChromosome(), individuals[other].getChromosome());
+    }
 
-        int threshold = Utils.randomIndex((int) totalFitness);
-        totalFitness = 0.0;
+    /**
+     * Builds the cumulative selection weights of the sorted individuals, once per generation
+     * Fitness is minimized: weight = worst fitness - fitness, plus an equal share so the worst can still be picked
+     */
+    private void buildRouletteWheel() {
+        if (cumulativeWeights == null || cumulativeWeights.length != size) {
+            cumulativeWeights = new double[size];
+        }
+
+        double bestFitness = individuals[0].getFitness();
+        double worstFitness = individuals[size - 1].getFitness();
+        double share = (worstFitness - bestFitness) / size;
 
-        for (Individual individual : individuals) {
-            totalFitness += individual.getFitness();
+        if (share == 0) { // All individuals are equally fit
+            share = 1;
+        }
 
-            if ((int) totalFitness > threshold) {
-                return individual;
+        double totalWeight = 0.0;
+        for (int i = 0; i < size; i++) {
+            totalWeight += (worstFitness - individuals[i].getFitness()) + share;
+            cumulativeWeights[i] = totalWeight;
+        }
+    }
+
+    /**
+     * Draws an Individual with probability proportional to its weight, by binary search in cumulativeWeights
+     * @return Index of the Individual
+     */
+    private int rouletteWheel() {
+        double threshold = Utils.randomDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (cumulativeWeights[middle] > threshold) {
+                high = middle;
+            } else {
+                low = middle + 1;
             }
         }
 
-        return null;
+        return low;
     }
 
-    private Individual tournament() {
-        List<Individual> tournamentMembers = new ArrayList<>();
+    /**
+     * @return Index of the best of tournamentSize different random Individuals
+     */
+    private int tournament() {
+        List<Integer> tournamentMembers = new ArrayList<>();
 
         for (int i = 0; i < tournamentSize; i++) {
             boolean contained = true;
-            Individual member = null;
+            int member = -1;
             while (contained) {
-                int randomIndex = Utils.randomIndex(individuals.size());
-                member = individuals.get(randomIndex);
+                member = Utils.randomIndex(size);
                 contained = tournamentMembers.contains(member);
             }
             tournamentMembers.add(member);
         }
-        tournamentMembers.sort(Comparator.comparingDouble(Individual::getFitness));
+        tournamentMembers.sort(Comparator.comparingDouble(member -> individuals[member].getFitness()));
         return tournamentMembers.get(0);
     }
 
     private double getTotalFitness() {
         double totalFitness = 0.0;
 
-        for (Individual individual : individuals) {
-            totalFitness += individual.getFitness();
+        for (int i = 0; i < size; i++) {
+            totalFitness += individuals[i].getFitness();
         }
 
         return totalFitness;
@@ -259,7 +919,11 @@ public class Population {
 
     public double getAverageFitness() {
         double totalFitness = getTotalFitness();
-        return totalFitness / individuals.size();
+        return totalFitness / size;
+    }
+
+    public double getWorstFitness() {
+        return individuals[size - 1].getFitness();
     }
 
     public int getGeneration() {
@@ -270,7 +934,17 @@ public class Population {
         return alphaIndividual.isValid();
     }
 
-    public List<Double> getGenerations() {
-        return generations;
+    /**
+     * @return Share of route evaluations answered by the fitness cache
+     */
+    public double getFitnessCacheHitRate() {
+        return problem.getFitnessCacheHitRate();
+    }
+
+    /**
+     * @return Average share of duplicate candidates in the replacement of a generation, see replaceDuplicates()
+     */
+    public double getDuplicateRate() {
+        return duplicateRateCount == 0 ? 0.0 : duplicateRateTotal / duplicateRateCount;
     }
 }
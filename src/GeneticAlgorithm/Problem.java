@@ -0,0 +1,260 @@
+package GeneticAlgorithm;
+
+import Map.DistanceMatrix;
+import Map.NeighbourLists;
+import MapObjects.Customer;
+import MapObjects.Depot;
+import MapObjects.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index based view of the map shared by all Individuals in a Population
+ * Uses the dense indices of the DistanceMatrix: depots [0, depots>, customers [depots, depots + customers>
+ * Routes are numbered depot by depot, each depot owns maxVehicles consecutive routes
+ */
+public class Problem {
+    private final List<Depot> depots;
+    private final DistanceMatrix distanceMatrix;
+    private final Depot[] depotObjects; // Depot by depot index
+    private final Customer[] customerObjects; // Customer by map index - depotsCount
+
+    private final int depotsCount;
+    private final int customersCount;
+    private final int routesCount; // Total number of vehicles
+
+    private final int[] timeDemands; // Service time by map index, 0 for depots
+    private final int[] loadDemands; // Load by map index, 0 for depots
+    private final double[] maxDurations; // D by depot index, 0 means unlimited
+    private final int[] maxLoads; // Q by depot index, 0 means unlimited
+    private final int[] nearestDepot; // Nearest depot index by map index
+    private final int[] routeDepot; // Start depot index by route index
+    private final int[] firstRoute; // First route index by depot index, firstRoute[depotsCount] = routesCount
+    private final NeighbourLists neighbourLists; // Nearest customers used by granular operators, null evaluates every position
+    private final ThreadLocal<FitnessCache> fitnessCache; // Route cache per evaluating thread, null when caching is off
+    private final List<FitnessCache> fitnessCaches = Collections.synchronizedList(new ArrayList<>()); // All caches, for the hit rate
+    private final Metrics metrics; // Counts and times evaluations, null when metrics are off
+
+    public Problem(List<Depot> depots) {
+        this(depots, 0, 0, null);
+    }
+
+    /**
+     * @param depots
+     * @param neighbours Number of nearest customers tried by granular operators, 0 turns granular mode off
+     * @param fitnessCacheSize Number of routes cached per thread by calculateFitness(), 0 turns caching off
+     * @param metrics Metrics of the Population, null when metrics are off
+     */
+    public Problem(List<Depot> depots, int neighbours, int fitnessCacheSize, Metrics metrics) {
+        this.depots = depots;
+        this.metrics = metrics;
+        this.fitnessCache = fitnessCacheSize > 0 ? ThreadLocal.withInitial(() -> createFitnessCache(fitnessCacheSize)) : null;
+        this.distanceMatrix = depots.get(0).getDistanceMatrix();
+        this.neighbourLists = neighbours > 0 ? distanceMatrix.getNeighbourLists(neighbours) : null;
+        this.depotsCount = depots.size();
+        this.customersCount = distanceMatrix.getSize() - depotsCount;
+        this.depotObjects = depots.toArray(new Depot[0]);
+        this.customerObjects = new Customer[customersCount];
+
+        int size = distanceMatrix.getSize();
+        timeDemands = new int[size];
+        loadDemands = new int[size];
+        maxDurations = new double[depotsCount];
+        maxLoads = new int[depotsCount];
+        firstRoute = new int[depotsCount + 1];
+
+        int routes = 0;
+        for (Depot depot : depots) {
+            maxDurations[depot.getIndex()] = depot.getMaxDuration();
+            maxLoads[depot.getIndex()] = depot.getMaxLoad();
+            firstRoute[depot.getIndex()] = routes;
+            routes += depot.getMaxVehicles();
+
+            for (Customer customer : depot.getCustomers()) {
+                customerObjects[customer.getIndex() - depotsCount] = customer;
+                timeDemands[customer.getIndex()] = customer.getTimeDemand();
+                loadDemands[customer.getIndex()] = customer.getLoadDemand();
+            }
+        }
+
+        routesCount = routes;
+        firstRoute[depotsCount] = routesCount;
+        routeDepot = new int[routesCount];
+        int route = 0;
+        for (Depot depot : depots) {
+            for (int i = 0; i < depot.getMaxVehicles(); i++) {
+                routeDepot[route++] = depot.getIndex();
+            }
+        }
+
+        nearestDepot = new int[size];
+        for (int i = 0; i < size; i++) {
+            double minimumDistance = Double.MAX_VALUE;
+            for (int depot = 0; depot < depotsCount; depot++) {
+                double distance = distanceMatrix.get(depot, i);
+                if (distance < minimumDistance) {
+                    minimumDistance = distance;
+                    nearestDepot[i] = depot;
+                }
+            }
+        }
+    }
+
+    private FitnessCache createFitnessCache(int fitnessCacheSize) {
+        FitnessCache cache = new FitnessCache(fitnessCacheSize);
+        fitnessCaches.add(cache);
+        return cache;
+    }
+
+    /**
+     * Encodes vehicles into a Chromosome
+     * Vehicles must be ordered depot by depot, as created by Individual
+     * @param vehicles
+     * @return
+     */
+    public Chromosome encode(List<Vehicle> vehicles) {
+        Chromosome chromosome = new Chromosome(customersCount, routesCount);
+
+        for (int route = 0; route < routesCount; route++) {
+            Vehicle vehicle = vehicles.get(route);
+            chromosome.beginRoute(route, vehicle.getStartDepot().getIndex(), vehicle.getEndDepot().getIndex());
+
+            for (Customer customer : vehicle.getRoute()) {
+                chromosome.add(customer.getIndex());
+            }
+        }
+
+        chromosome.endRoutes();
+        return chromosome;
+    }
+
+    /**
+     * Decodes a Chromosome into Vehicles, used for rendering and saving
+     * @param chromosome
+     * @return
+     */
+    public List<Vehicle> decode(Chromosome chromosome) {
+        List<Vehicle> vehicles = new ArrayList<>(routesCount);
+
+        for (int route = 0; route < routesCount; route++) {
+            List<Customer> customers = new ArrayList<>(chromosome.getRouteSize(route));
+
+            for (int i = chromosome.getRouteStart(route); i < chromosome.getRouteEnd(route); i++) {
+                customers.add(getCustomer(chromosome.getCustomer(i)));
+            }
+
+            vehicles.add(new Vehicle(getDepot(chromosome.getStartDepot(route)), getDepot(chromosome.getEndDepot(route)), customers));
+        }
+
+        return vehicles;
+    }
+
+    public List<Depot> getDepots() {
+        return depots;
+    }
+
+    public DistanceMatrix getDistanceMatrix() {
+        return distanceMatrix;
+    }
+
+    public double distance(int from, int to) {
+        return distanceMatrix.get(from, to);
+    }
+
+    public Depot getDepot(int depotIndex) {
+        return depotObjects[depotIndex];
+    }
+
+    public Customer getCustomer(int index) {
+        return customerObjects[index - depotsCount];
+    }
+
+    public int getDepotsCount() {
+        return depotsCount;
+    }
+
+    public int getCustomersCount() {
+        return customersCount;
+    }
+
+    public int getRoutesCount() {
+        return routesCount;
+    }
+
+    public int getTimeDemand(int index) {
+        return timeDemands[index];
+    }
+
+    public int getLoadDemand(int index) {
+        return loadDemands[index];
+    }
+
+    public double getMaxDuration(int depotIndex) {
+        return maxDurations[depotIndex];
+    }
+
+    public int getMaxLoad(int depotIndex) {
+        return maxLoads[depotIndex];
+    }
+
+    public int getNearestDepot(int index) {
+        return nearestDepot[index];
+    }
+
+    public int getRouteDepot(int route) {
+        return routeDepot[route];
+    }
+
+    /**
+     * @return Nearest customers of every customer, null when granular mode is off
+     */
+    public NeighbourLists getNeighbourLists() {
+        return neighbourLists;
+    }
+
+    public boolean isGranular() {
+        return neighbourLists != null;
+    }
+
+    /**
+     * @return Route cache of the calling thread, null when caching is off
+     */
+    public FitnessCache getFitnessCache() {
+        return fitnessCache != null ? fitnessCache.get() : null;
+    }
+
+    /**
+     * Counters are read without synchronization, so the result may lag behind the breeding threads a little
+     * @return Share of route evaluations answered by the caches of all threads, 0 before the first lookup
+     */
+    public double getFitnessCacheHitRate() {
+        long hits = 0;
+        long lookups = 0;
+
+        synchronized (fitnessCaches) {
+            for (FitnessCache cache : fitnessCaches) {
+                hits += cache.getHits();
+                lookups += cache.getHits() + cache.getMisses();
+            }
+        }
+
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    public int getFirstRoute(int depotIndex) {
+        return firstRoute[depotIndex];
+    }
+
+    public int getMaxVehicles(int depotIndex) {
+        return firstRoute[depotIndex + 1] - firstRoute[depotIndex];
+    }
+
+    /**
+     * @return Metrics of the Population, null when metrics are off
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,171 @@
+package GeneticAlgorithm;
+
+import Utils.Utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes Individuals in the format of the solution (.res) files
+ * Ids and numbers are put straight into a reused buffer, without building a String per route
+ * Not thread safe, every writing thread needs its own SolutionWriter
+ */
+public class SolutionWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] digits = new byte[20]; // Scratch for putLong(), fits any long
+    private FileChannel channel; // Channel of the file being written
+
+    /**
+     * Writes the duration, then one line per vehicle: start depot, vehicle number per depot, route duration, load,
+     * end depot and the customers of the route
+     *
+     * @param individual
+     * @param path
+     * @throws IOException
+     */
+    public void write(Individual individual, Path path) throws IOException {
+        Problem problem = individual.getProblem();
+        Chromosome chromosome = individual.getChromosome();
+
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel = fileChannel;
+            buffer.clear();
+
+            putRounded(individual.getDuration());
+
+            int vehicleId = 0;
+            int lastDepot = chromosome.getStartDepot(0);
+
+            for (int route = 0; route < chromosome.getRoutesCount(); route++) {
+                int startDepot = chromosome.getStartDepot(route);
+                vehicleId = startDepot == lastDepot ? vehicleId + 1 : 1;
+                lastDepot = startDepot;
+
+                put(LINE_SEPARATOR);
+                putString(problem.getDepot(startDepot).getId()); // s: number of the start depot
+                putByte('\t');
+                putLong(vehicleId); // k: number of the vehicle (for above depot)
+                putByte('\t');
+                putRounded(calculateRouteDuration(problem, chromosome, route)); // d: duration of the route
+                putString("   ");
+                putLong(calculateRouteLoad(problem, chromosome, route)); // q: carried load of the vehicle
+                putByte('\t');
+                putString(problem.getDepot(chromosome.getEndDepot(route)).getId()); // e: number of the end depot
+                putByte('\t');
+
+                for (int i = chromosome.getRouteStart(route); i < chromosome.getRouteEnd(route); i++) { // list: ordered sequence of customers
+                    if (i != chromosome.getRouteStart(route)) {
+                        putByte(' ');
+                    }
+                    putString(problem.getCustomer(chromosome.getCustomer(i)).getId());
+                }
+            }
+
+            flush();
+        } finally {
+            channel = null;
+        }
+    }
+
+    /**
+     * Route duration summed in the same order as Vehicle.calculateRouteDuration(), so the rounded value is the same
+     */
+    private static double calculateRouteDuration(Problem problem, Chromosome chromosome, int route) {
+        double duration = 0.0;
+        if (chromosome.getRouteSize(route) == 0) {
+            return duration;
+        }
+
+        int previous = chromosome.getStartDepot(route);
+        for (int i = chromosome.getRouteStart(route); i < chromosome.getRouteEnd(route); i++) {
+            int customer = chromosome.getCustomer(i);
+            duration += problem.distance(previous, customer);
+            duration += problem.getTimeDemand(customer);
+            previous = customer;
+        }
+        duration += problem.distance(previous, chromosome.getEndDepot(route));
+
+        return duration;
+    }
+
+    private static int calculateRouteLoad(Problem problem, Chromosome chromosome, int route) {
+        int load = 0;
+        for (int i = chromosome.getRouteStart(route); i < chromosome.getRouteEnd(route); i++) {
+            load += problem.getLoadDemand(chromosome.getCustomer(i));
+        }
+        return load;
+    }
+
+    /**
+     * Puts value rounded to 2 decimals as Double.toString() prints it: at least one decimal, no trailing zeros
+     */
+    private void putRounded(double value) throws IOException {
+        long cents = Math.round(Utils.round(value, 2) * 100); // Exact, the rounded value is the double nearest to cents / 100
+        if (cents < 0) {
+            putByte('-');
+            cents = -cents;
+        }
+
+        putLong(cents / 100);
+        putByte('.');
+
+        long fraction = cents % 100;
+        putByte('0' + (int) (fraction / 10));
+        if (fraction % 10 != 0) {
+            putByte('0' + (int) (fraction % 10));
+        }
+    }
+
+    private void putLong(long value) throws IOException {
+        if (value < 0) {
+            putByte('-');
+            value = -value;
+        }
+
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+
+        while (length > 0) {
+            putByte(digits[--length]);
+        }
+    }
+
+    /**
+     * Puts the characters of an id, which are ASCII in the map files
+     */
+    private void putString(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            putByte(value.charAt(i));
+        }
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        for (byte b : bytes) {
+            putByte(b);
+        }
+    }
+
+    private void putByte(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) b);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,291 @@
+package GeneticAlgorithm;
+
+/**
+ * Split decoder of the giant tour encoding (Prins 2004)
+ * A giant tour is one permutation of customers per depot, laid out back to back like the routes of a Chromosome
+ * Cuts the giant tour of every depot into the cheapest routes that respect max load and max duration,
+ * as a shortest path over prefix sums of distance, service time and load
+ * Uses the linear algorithm of Vidal (2016): route cost(i, j) = key(i) + value(j), and the feasible predecessors of j
+ * form a window that only moves forward, so the best predecessor is the front of a monotone queue
+ * If the unlimited fleet needs more than max vehicles, the fleet limited version runs in O(maxVehicles * n)
+ * If no split respects the limits at all, the cheapest split with the penalties of calculateFitness() is used (O(maxVehicles * n^2)),
+ * and isFeasible() reports the depot, so the caller can move customers to another depot
+ * Holds working arrays between calls, so one Split must only be used by one thread at a time
+ */
+public class Split {
+    private static final double INFINITY = Double.POSITIVE_INFINITY;
+
+    private final Problem problem;
+    private final int durationPenaltyRate;
+    private final int loadPenaltyRate;
+
+    // Working arrays by position in the tour of one depot, position 0 is the depot and customers are 1..n
+    private final int[] customers;
+    private final double[] distance; // distance[j]: travel from customer 1 to customer j
+    private final double[] service; // service[j]: service time of customers 1..j
+    private final int[] load; // load[j]: load of customers 1..j
+    private final double[] endDistance; // endDistance[j]: from customer j to its nearest depot
+    private final double[] potential; // potential[j]: cheapest cost of customers 1..j with any number of routes
+    private final int[] predecessor; // predecessor[j]: last position of the route before the route ending at j
+    private final double[][] layerPotential; // layerPotential[k][j]: cheapest cost of customers 1..j with exactly k routes
+    private final int[][] layerPredecessor;
+    private final int[] queue; // Candidate predecessors, increasing key
+    private final int[] routeEnds; // Last position of every route of the current depot
+    private final int[] depotRoutes; // Routes of every depot in the last decode()
+    private final boolean[] depotFeasible; // Whether the last decode() split every depot within max load and max duration
+
+    public Split(Problem problem, int durationPenaltyRate, int loadPenaltyRate) {
+        this.problem = problem;
+        this.durationPenaltyRate = durationPenaltyRate;
+        this.loadPenaltyRate = loadPenaltyRate;
+
+        int maxCustomers = problem.getCustomersCount(); // Any depot can serve all customers
+        int maxVehicles = 0;
+        for (int depot = 0; depot < problem.getDepotsCount(); depot++) {
+            maxVehicles = Math.max(maxVehicles, problem.getMaxVehicles(depot));
+        }
+
+        customers = new int[maxCustomers + 1];
+        distance = new double[maxCustomers + 1];
+        service = new double[maxCustomers + 1];
+        load = new int[maxCustomers + 1];
+        endDistance = new double[maxCustomers + 1];
+        potential = new double[maxCustomers + 1];
+        predecessor = new int[maxCustomers + 1];
+        layerPotential = new double[maxVehicles + 1][maxCustomers + 1];
+        layerPredecessor = new int[maxVehicles + 1][maxCustomers + 1];
+        queue = new int[maxCustomers + 1];
+        routeEnds = new int[Math.max(maxCustomers, maxVehicles)];
+        depotRoutes = new int[problem.getDepotsCount()];
+        depotFeasible = new boolean[problem.getDepotsCount()];
+    }
+
+    /**
+     * @param giantTour customers of all depots
+     * @param depotStart first position of every depot in giantTour, depotStart[depotsCount] = giantTour.length
+     * @param chromosome overwritten with the best routes of every depot, unused vehicles get empty routes
+     */
+    public void decode(int[] giantTour, int[] depotStart, Chromosome chromosome) {
+        chromosome.clear();
+
+        for (int depot = 0; depot < problem.getDepotsCount(); depot++) {
+            int start = depotStart[depot];
+            int n = depotStart[depot + 1] - start;
+            int maxVehicles = problem.getMaxVehicles(depot);
+
+            prepare(depot, giantTour, start, n);
+            depotFeasible[depot] = true;
+            int routes = n == 0 ? 0 : splitDepot(depot, n, maxVehicles);
+            depotRoutes[depot] = routes;
+
+            int first = 1;
+            for (int i = 0; i < maxVehicles; i++) {
+                int route = problem.getFirstRoute(depot) + i;
+
+                if (i < routes) {
+                    int last = routeEnds[routes - 1 - i]; // routeEnds is filled backwards
+                    chromosome.beginRoute(route, depot, problem.getNearestDepot(customers[last]));
+                    for (int j = first; j <= last; j++) {
+                        chromosome.add(customers[j]);
+                    }
+                    first = last + 1;
+                } else {
+                    chromosome.beginRoute(route, depot, depot);
+                }
+            }
+        }
+
+        chromosome.endRoutes();
+    }
+
+    private void prepare(int depot, int[] giantTour, int start, int n) {
+        for (int j = 1; j <= n; j++) {
+            int customer = giantTour[start + j - 1];
+            customers[j] = customer;
+            distance[j] = j == 1 ? 0.0 : distance[j - 1] + problem.distance(customers[j - 1], customer);
+            service[j] = service[j - 1] + problem.getTimeDemand(customer);
+            load[j] = load[j - 1] + problem.getLoadDemand(customer);
+            endDistance[j] = problem.distance(customer, problem.getNearestDepot(customer));
+        }
+    }
+
+    /**
+     * Splits the tour of depot into routes, written backwards to routeEnds
+     * @return Number of routes
+     */
+    private int splitDepot(int depot, int n, int maxVehicles) {
+        potential[0] = 0.0;
+        splitLayer(depot, n, potential, potential, predecessor);
+
+        if (potential[n] != INFINITY) {
+            int routes = 0;
+            for (int j = n; j > 0; j = predecessor[j]) {
+                routeEnds[routes++] = j;
+            }
+
+            if (routes <= maxVehicles) {
+                return routes;
+            }
+        }
+
+        int routes = splitLimitedFleet(depot, n, maxVehicles, false);
+        if (routes > 0) {
+            return routes;
+        }
+
+        depotFeasible[depot] = false;
+        return splitLimitedFleet(depot, n, maxVehicles, true);
+    }
+
+    /**
+     * @param depot
+     * @return True if the last decode() split the tour of depot into routes within max load and max duration
+     */
+    public boolean isFeasible(int depot) {
+        return depotFeasible[depot];
+    }
+
+    /**
+     * @param depot
+     * @return True if the last decode() split depot within the limits and left at least one of its vehicles unused
+     */
+    public boolean hasSpareVehicle(int depot) {
+        return depotFeasible[depot] && depotRoutes[depot] < problem.getMaxVehicles(depot);
+    }
+
+    /**
+     * @param penalized Allows routes over max load or max duration, at the cost of their penalty
+     * @return Number of routes of the cheapest split with at most maxVehicles routes, 0 if there is none
+     */
+    private int splitLimitedFleet(int depot, int n, int maxVehicles, boolean penalized) {
+        layerPotential[0][0] = 0.0;
+        for (int j = 1; j <= n; j++) {
+            layerPotential[0][j] = INFINITY;
+        }
+
+        int bestRoutes = 0;
+        for (int k = 1; k <= maxVehicles; k++) {
+            if (penalized) {
+                splitPenalizedLayer(depot, n, layerPotential[k - 1], layerPotential[k], layerPredecessor[k]);
+            } else {
+                splitLayer(depot, n, layerPotential[k - 1], layerPotential[k], layerPredecessor[k]);
+            }
+
+            if (layerPotential[k][n] < (bestRoutes == 0 ? INFINITY : layerPotential[bestRoutes][n])) {
+                bestRoutes = k;
+            }
+        }
+
+        int j = n;
+        for (int k = bestRoutes; k > 0; k--) {
+            routeEnds[bestRoutes - k] = j;
+            j = layerPredecessor[k][j];
+        }
+
+        return bestRoutes;
+    }
+
+    /**
+     * current[j] = min over feasible i < j of previous[i] + cost of route i + 1 .. j
+     * With previous == current this is the unlimited fleet split, otherwise one more route than previous
+     */
+    private void splitLayer(int depot, int n, double[] previous, double[] current, int[] predecessors) {
+        int maxLoad = problem.getMaxLoad(depot);
+        double maxDuration = problem.getMaxDuration(depot);
+
+        if (previous != current) {
+            current[0] = INFINITY;
+        }
+
+        int head = 0;
+        int tail = 0;
+        int left = 0; // First feasible predecessor
+        if (previous[0] != INFINITY) {
+            queue[tail++] = 0;
+        }
+
+        for (int j = 1; j <= n; j++) {
+            while (left < j && !isFeasible(depot, left, j, maxLoad, maxDuration)) {
+                left++;
+            }
+            while (head < tail && queue[head] < left) {
+                head++;
+            }
+
+            if (head < tail) {
+                int i = queue[head];
+                current[j] = key(depot, previous, i) + distance[j] + service[j] + endDistance[j];
+                predecessors[j] = i;
+            } else {
+                current[j] = INFINITY;
+            }
+
+            if (j < n && previous[j] != INFINITY) {
+                double key = key(depot, previous, j);
+                while (head < tail && key(depot, previous, queue[tail - 1]) >= key) {
+                    tail--;
+                }
+                queue[tail++] = j;
+            }
+        }
+    }
+
+    /**
+     * current[j] = min over all i < j of previous[i] + cost of route i + 1 .. j including penalties
+     * Penalties break the window structure of splitLayer(), so every predecessor is tried
+     */
+    private void splitPenalizedLayer(int depot, int n, double[] previous, double[] current, int[] predecessors) {
+        int maxLoad = problem.getMaxLoad(depot);
+        double maxDuration = problem.getMaxDuration(depot);
+        current[0] = INFINITY;
+
+        for (int j = 1; j <= n; j++) {
+            current[j] = INFINITY;
+
+            for (int i = 0; i < j; i++) {
+                if (previous[i] == INFINITY) {
+                    continue;
+                }
+
+                double duration = problem.distance(depot, customers[i + 1]) + distance[j] - distance[i + 1] + service[j] - service[i] + endDistance[j];
+                int routeLoad = load[j] - load[i];
+                double cost = previous[i] + duration;
+
+                if (maxDuration != 0 && duration > maxDuration) {
+                    cost += (duration - maxDuration) * durationPenaltyRate;
+                }
+                if (maxLoad != 0 && routeLoad > maxLoad) {
+                    cost += (routeLoad - maxLoad) * loadPenaltyRate;
+                }
+
+                if (cost < current[j]) {
+                    current[j] = cost;
+                    predecessors[j] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Part of the cost of route i + 1 .. j that only depends on i
+     */
+    private double key(int depot, double[] previous, int i) {
+        return previous[i] + problem.distance(depot, customers[i + 1]) - distance[i + 1] - service[i];
+    }
+
+    /**
+     * Load and duration only grow when a route is extended (triangle inequality), so feasibility is monotone in i and j
+     */
+    private boolean isFeasible(int depot, int i, int j, int maxLoad, double maxDuration) {
+        if (maxLoad != 0 && load[j] - load[i] > maxLoad) {
+            return false;
+        }
+
+        if (maxDuration != 0) {
+            double duration = problem.distance(depot, customers[i + 1]) + distance[j] - distance[i + 1] + service[j] - service[i] + endDistance[j];
+            return duration <= maxDuration;
+        }
+
+        return true;
+    }
+}
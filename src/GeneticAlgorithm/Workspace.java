@@ -0,0 +1,114 @@
+package GeneticAlgorithm;
+
+/**
+ * Scratch memory of one breeding thread, reused for every child so the generation loop does not allocate
+ * Must only be used by one thread at a time
+ */
+public class Workspace {
+    private final Chromosome reducedChromosome; // Parent without the inserted segment, see Individual.singlePointCrossOver()
+    private final Chromosome scratchChromosome; // Target of operators that can not work in place
+    private final boolean[] removed; // By customer index, cleared after use
+    private final boolean[] candidates; // By chromosome position, cleared after use
+    private final double[] routeDurations;
+    private final int[] routeLoads;
+    private final int[] partitionIndices; // Split points of the first parent's route, see Utils.splitRoute()
+    private final int[] partnerPartitionIndices; // Split points of the second parent's route
+
+    // Giant tour encoding
+    private final int[] giantTour;
+    private final int[] depotStart;
+    private final int[] depotCursor;
+    private final int[] depotOf; // By customer index
+    private final int[] depotLoad; // Load of the customers of every depot, see Population.reassignCustomers()
+    private final int[] reassignedTour;
+
+    private final LocalSearch localSearch; // null without education
+    private final Split split; // null with the route encoding
+
+    public Workspace(Problem problem, int k, LocalSearch localSearch, Split split) {
+        int customers = problem.getCustomersCount();
+        int routes = problem.getRoutesCount();
+        int depots = problem.getDepotsCount();
+
+        this.reducedChromosome = new Chromosome(customers, routes);
+        this.scratchChromosome = new Chromosome(customers, routes);
+        this.removed = new boolean[depots + customers];
+        this.candidates = new boolean[customers + 1];
+        this.routeDurations = new double[routes];
+        this.routeLoads = new int[routes];
+        this.partitionIndices = new int[k + 1];
+        this.partnerPartitionIndices = new int[k + 1];
+        this.giantTour = new int[customers];
+        this.depotStart = new int[depots + 1];
+        this.depotCursor = new int[depots];
+        this.depotOf = new int[depots + customers];
+        this.depotLoad = new int[depots];
+        this.reassignedTour = new int[customers];
+        this.localSearch = localSearch;
+        this.split = split;
+    }
+
+    public Chromosome getReducedChromosome() {
+        return reducedChromosome;
+    }
+
+    public Chromosome getScratchChromosome() {
+        return scratchChromosome;
+    }
+
+    public boolean[] getRemoved() {
+        return removed;
+    }
+
+    public boolean[] getCandidates() {
+        return candidates;
+    }
+
+    public double[] getRouteDurations() {
+        return routeDurations;
+    }
+
+    public int[] getRouteLoads() {
+        return routeLoads;
+    }
+
+    public int[] getPartitionIndices() {
+        return partitionIndices;
+    }
+
+    public int[] getPartnerPartitionIndices() {
+        return partnerPartitionIndices;
+    }
+
+    public int[] getGiantTour() {
+        return giantTour;
+    }
+
+    public int[] getDepotStart() {
+        return depotStart;
+    }
+
+    public int[] getDepotCursor() {
+        return depotCursor;
+    }
+
+    public int[] getDepotOf() {
+        return depotOf;
+    }
+
+    public int[] getDepotLoad() {
+        return depotLoad;
+    }
+
+    public int[] getReassignedTour() {
+        return reassignedTour;
+    }
+
+    public LocalSearch getLocalSearch() {
+        return localSearch;
+    }
+
+    public Split getSplit() {
+        return split;
+    }
+}
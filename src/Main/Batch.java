@@ -0,0 +1,242 @@
+package Main;
+
+import GeneticAlgorithm.GeneticAlgorithm;
+import GeneticAlgorithm.Parameters;
+import Map.MapParser;
+import Utils.Utils;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Solves every map x seed x configuration combination without GUI, one run per task on a work-stealing pool
+ * Runs are sequential GeneticAlgorithms, the pool runs one per core. Configurations with --parallel or --islands
+ * use more threads per run, so --threads should be lowered for them
+ * Writes one row per run to a tab separated table and prints a summary per map and configuration
+ *
+ * Usage: Batch [--maps p01,p02,path] [--seeds 1,2,3] [--config "name --k 2 --mutation 0.05"]...
+ *              [--generations n] [--seconds s] [--stop-at-benchmark] [--threads n] [--output file]
+ * Maps default to all bundled maps, seeds to 1,2,3, configurations to the default parameters, output to batch.tsv
+ * A configuration is a name followed by the parameters of Headless
+ */
+public class Batch {
+    private static final int BUNDLED_MAPS = 23; // p01 - p23
+
+    /**
+     * One map, configuration and seed, and its result
+     */
+    private static class Run {
+        private String mapName;
+        private String configName;
+        private String[] configArgs; // Headless parameters of the configuration
+        private long seed;
+        private int customers; // Size of the map, larger maps are scheduled first
+
+        private int generations;
+        private double seconds;
+        private double generationsPerSecond;
+        private double duration; // Duration of the alpha solution
+        private double benchmark; // Duration of the .res solution
+        private double gap; // Gap between duration and benchmark in percent, NaN without benchmark
+        private boolean valid;
+        private double timeToBenchmark; // -1 if the benchmark was not reached
+
+        private Run(String mapName, String configName, String[] configArgs, long seed, int customers) {
+            this.mapName = mapName;
+            this.configName = configName;
+            this.configArgs = configArgs;
+            this.seed = seed;
+            this.customers = customers;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> mapNames = new ArrayList<>();
+        List<Long> seeds = new ArrayList<>(Arrays.asList(1L, 2L, 3L));
+        LinkedHashMap<String, String[]> configs = new LinkedHashMap<>();
+        int maxGenerations = 0;
+        double maxSeconds = 0;
+        boolean stopAtBenchmark = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = "batch.tsv";
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--maps": mapNames.addAll(Arrays.asList(args[++i].split(","))); break;
+                case "--seeds":
+                    seeds.clear();
+                    for (String seed : args[++i].split(",")) {
+                        seeds.add(Long.parseLong(seed));
+                    }
+                    break;
+                case "--config":
+                    String[] config = args[++i].trim().split("\\s+");
+                    configs.put(config[0], Arrays.copyOfRange(config, 1, config.length));
+                    break;
+                case "--generations": maxGenerations = Integer.parseInt(args[++i]); break;
+                case "--seconds": maxSeconds = Double.parseDouble(args[++i]); break;
+                case "--stop-at-benchmark": stopAtBenchmark = true; break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--output": output = args[++i]; break;
+                default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        if (maxGenerations == 0 && maxSeconds == 0) {
+            throw new IllegalArgumentException("Missing budget: --generations or --seconds");
+        }
+
+        if (mapNames.isEmpty()) {
+            for (int i = 1; i <= BUNDLED_MAPS; i++) {
+                mapNames.add(String.format("p%02d", i));
+            }
+        }
+        if (configs.isEmpty()) {
+            configs.put("default", new String[0]);
+        }
+
+        for (String[] configArgs : configs.values()) {
+            createParameters(configArgs, 0); // Fails before any run starts if a configuration is invalid
+        }
+
+        List<Run> runs = new ArrayList<>();
+        for (String mapName : mapNames) {
+            int customers = MapParser.readCustomerCount(mapName);
+
+            for (java.util.Map.Entry<String, String[]> config : configs.entrySet()) {
+                for (long seed : seeds) {
+                    runs.add(new Run(mapName, config.getKey(), config.getValue(), seed, customers));
+                }
+            }
+        }
+
+        // Longest runs first, so the last runs to finish are short ones
+        List<Run> schedule = new ArrayList<>(runs);
+        schedule.sort(Comparator.comparingInt((Run run) -> run.customers).reversed());
+
+        System.out.println(runs.size() + " runs on " + threads + " threads");
+        long startNanoTime = System.nanoTime();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        int finalMaxGenerations = maxGenerations;
+        double finalMaxSeconds = maxSeconds;
+        boolean finalStopAtBenchmark = stopAtBenchmark;
+
+        for (Run run : schedule) {
+            tasks.add(pool.submit(() -> {
+                solve(run, finalMaxGenerations, finalMaxSeconds, finalStopAtBenchmark);
+                return null;
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        pool.shutdown();
+
+        writeTable(runs, output);
+        printSummary(runs);
+        System.out.println("Finished in " + Utils.round((System.nanoTime() - startNanoTime) / 1000000000.0, 1) + " s, runs written to " + output);
+    }
+
+    private static Parameters createParameters(String[] configArgs, long seed) {
+        Parameters parameters = new Parameters();
+        for (int i = 0; i < configArgs.length; i++) {
+            i = Headless.parseParameter(parameters, configArgs, i);
+        }
+        parameters.setSeed(seed);
+        return parameters;
+    }
+
+    private static void solve(Run run, int maxGenerations, double maxSeconds, boolean stopAtBenchmark) throws IOException {
+        Solver solver = new Solver(run.mapName, createParameters(run.configArgs, run.seed));
+        solver.run(maxGenerations, maxSeconds, stopAtBenchmark);
+
+        GeneticAlgorithm ga = solver.getGeneticAlgorithm();
+        run.generations = ga.getGeneration();
+        run.seconds = solver.getElapsedSeconds();
+        run.generationsPerSecond = solver.getGenerationsPerSecond();
+        run.duration = ga.getAlphaDuration();
+        run.benchmark = solver.getMap().getBenchmark();
+        run.gap = solver.getGap();
+        run.valid = ga.isAlphaValid();
+        run.timeToBenchmark = solver.getTimeToBenchmark();
+
+        solver.finishWriting();
+        solver.shutdown();
+
+        System.out.println(run.mapName + " " + run.configName + " seed " + run.seed + ": duration " + Utils.round(run.duration, 2)
+                + ", gap " + (Double.isNaN(run.gap) ? "none" : formatGap(run.gap) + "%") + ", valid " + run.valid);
+    }
+
+    /**
+     * @return Gap rounded to 2 places, empty if the map has no benchmark
+     */
+    private static String formatGap(double gap) {
+        return Double.isNaN(gap) ? "" : String.valueOf(Utils.round(gap, 2));
+    }
+
+    /**
+     * Writes one row per run, in the order of the arguments
+     */
+    private static void writeTable(List<Run> runs, String fileName) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
+
+        writer.write("map\tconfig\tseed\tgenerations\tseconds\tgenerationsPerSecond\tduration\tbenchmark\tgap\tvalid\ttimeToBenchmark");
+        writer.newLine();
+
+        for (Run run : runs) {
+            writer.write(run.mapName + "\t" + run.configName + "\t" + run.seed + "\t" + run.generations
+                    + "\t" + Utils.round(run.seconds, 3) + "\t" + Utils.round(run.generationsPerSecond, 2)
+                    + "\t" + Utils.round(run.duration, 2) + "\t" + run.benchmark + "\t" + formatGap(run.gap)
+                    + "\t" + run.valid + "\t" + Utils.round(run.timeToBenchmark, 3));
+            writer.newLine();
+        }
+
+        writer.close();
+    }
+
+    /**
+     * Prints best and mean gap, valid runs, runs that reached the benchmark and mean speed per map and configuration
+     */
+    private static void printSummary(List<Run> runs) {
+        System.out.println(String.format("%-8s %-12s %10s %10s %7s %9s %8s", "map", "config", "bestGap", "meanGap", "valid", "reached", "gen/s"));
+
+        LinkedHashMap<String, List<Run>> groups = new LinkedHashMap<>();
+        for (Run run : runs) {
+            groups.computeIfAbsent(run.mapName + "\t" + run.configName, key -> new ArrayList<>()).add(run);
+        }
+
+        for (List<Run> group : groups.values()) {
+            double bestGap = Double.NaN;
+            double totalGap = 0.0;
+            int gaps = 0; // Runs with a benchmark
+            double totalGenerationsPerSecond = 0.0;
+            int valid = 0;
+            int reached = 0;
+
+            for (Run run : group) {
+                if (!Double.isNaN(run.gap)) {
+                    bestGap = Double.isNaN(bestGap) ? run.gap : Math.min(bestGap, run.gap);
+                    totalGap += run.gap;
+                    gaps++;
+                }
+                totalGenerationsPerSecond += run.generationsPerSecond;
+                valid += run.valid ? 1 : 0;
+                reached += run.timeToBenchmark != -1 ? 1 : 0;
+            }
+
+            System.out.println(String.format("%-8s %-12s %10.2f %10.2f %7s %9s %8.1f", group.get(0).mapName, group.get(0).configName,
+                    bestGap, gaps == 0 ? Double.NaN : totalGap / gaps, valid + "/" + group.size(), reached + "/" + group.size(),
+                    totalGenerationsPerSecond / group.size()));
+        }
+    }
+}
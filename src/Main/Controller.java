@@ -1,6 +1,8 @@
 package Main;
 
 import GeneticAlgorithm.GeneticAlgorithm;
+import GeneticAlgorithm.Individual;
+import GeneticAlgorithm.Parameters;
 import Map.Map;
 import Utils.Utils;
 import javafx.animation.AnimationTimer;
@@ -18,16 +20,16 @@ import javafx.scene.layout.AnchorPane;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
  * Controls GUI (View.fxml)
  * Controls Map and GeneticAlgorithms
- * Creates Animation with AnimationTimer
- * Each loop in Animation is the main game loop.
- * The game loop consists of two main functions: tick() and render()
- * tick() fires functionality
- * render() draws on canvas
+ * Runs the Solver on a SolverThread, and creates Animation with AnimationTimer
+ * Each loop in Animation takes the latest SolverSnapshot of the solver thread
+ * and only updates the labels when it is new, and redraws the routes when its alpha is new
+ * Depots and customers are drawn once on mapCanvas, below the route canvas
  */
 public class Controller {
 
@@ -51,32 +53,35 @@ public class Controller {
     @FXML private NumberAxis yAxis;
 
     // Map
-    @FXML private Canvas canvas;
+    @FXML private Canvas mapCanvas; // Depots and customers, drawn once per Map
+    @FXML private Canvas canvas; // Routes of the alpha solution, transparent on top of mapCanvas
 
     private Map map;
     public static String fileName = "p01"; // Current map
 
+    private Solver solver; // Runs the GeneticAlgorithm, the GUI observes it
     private GeneticAlgorithm ga; // GeneticAlgorithm: Contains a Population, which contains Solutions
+    private SolverThread solverThread; // Runs solver, publishes a SolverSnapshot per generation
+    private SolverSnapshot renderedSnapshot; // Snapshot currently drawn on canvas, null before the first generation
+    private AnimationTimer animationTimer;
+    private ExportService exportService = new ExportService(16); // Writes saved solutions and CSV rows off the JavaFX thread
 
     // Line chart
-    private XYChart.Series seriesAlphaSolution; // Fitness per generation of alpha solution
-    private XYChart.Series seriesPopulation; // Average fitness per generation of population
-    private HashMap<Integer, Double> alphaSolutionFitnessData;
-    private HashMap<Integer, Double> populationFitnessData;
-    private boolean shouldUpdate = false;
-
-    // Canvas
-    public final static int CANVAS_WIDTH = 500; // Canvas width set in View.fxml
-    public final static int CANVAS_HEIGHT = 500; // Canvas width set in View.fxml
-    public final static int CANVAS_MARGIN = 10; // The margin avoids that extreme points are drawn outside canvas
+    private final static int CHART_BUCKETS = 300; // Generation buckets per series, each shown as its minimum and maximum
+    private XYChart.Series<Number, Number> seriesAlphaSolution; // Fitness per generation of alpha solution
+    private XYChart.Series<Number, Number> seriesPopulation; // Average fitness per generation of population
+    private DownsampledSeries alphaSolutionFitnessData;
+    private DownsampledSeries populationFitnessData;
+
+    // Canvas, sized Map.CANVAS_WIDTH by Map.CANVAS_HEIGHT
     private GraphicsContext gc; // Used to draw on canvas
+    private Individual renderedAlpha; // Alpha solution whose routes are on canvas
 
     // States
     private boolean paused = true; // Used to start/pause game loop
     private boolean initialized = false; // Used to start/pause game loop
 
     // Settings
-    public static boolean verbose = false; // Used to enable logging with System.out.println()
     private boolean viewGraph = false; // Used to enable/disable viewGraph
 
     /**
@@ -87,8 +92,11 @@ public class Controller {
     @FXML
     private void initialize() {
         try {
-            map = new Map(fileName); // Parse file
-            ga = new GeneticAlgorithm(map.getDepots());
+            solver = new Solver(fileName, new Parameters()); // Parse file
+            map = solver.getMap();
+            ga = solver.getGeneticAlgorithm();
+            solverThread = new SolverThread(solver);
+            solverThread.start();
             initializeGUI();
         } catch (IOException e) {
             e.printStackTrace();
@@ -101,38 +109,45 @@ public class Controller {
             lineChart.setPrefHeight(250);
             lineChart.setPrefWidth(650);
         } else {
-            anchorPane.setPrefHeight(CANVAS_HEIGHT);
+            anchorPane.setPrefHeight(Map.CANVAS_HEIGHT);
             lineChart.setVisible(false);
         }
 
 
         gc = canvas.getGraphicsContext2D(); // Used to draw in canvas
+        renderMap();
+        renderedSnapshot = null;
+        renderedAlpha = null;
         render();
         final long startNanoTime = System.nanoTime(); // Time when system starts
         initialized = true;
 
-        new AnimationTimer() { // Game loop
+        animationTimer = new AnimationTimer() { // Game loop
             public void handle(long currentNanoTime) {
+                SolverSnapshot snapshot = solverThread.getSnapshot(); // Latest generation, the solver thread does not wait for this frame
+
                 if (!paused) {
-                    tick(startNanoTime, currentNanoTime);
+                    updateGUI(startNanoTime, currentNanoTime, snapshot);
+                }
+
+                if (snapshot != null && snapshot != renderedSnapshot) {
+                    renderedSnapshot = snapshot;
 
                     if (viewGraph) {
-                        alphaSolutionFitnessData.put(ga.getGeneration(), ga.getAlphaFitness());
-                        populationFitnessData.put(ga.getGeneration(), ga.getAverageFitness());
-                        shouldUpdate = true;
+                        alphaSolutionFitnessData.add(snapshot.getGeneration(), snapshot.getAlphaFitness());
+                        populationFitnessData.add(snapshot.getGeneration(), snapshot.getAverageFitness());
+                        updateLinechart();
                     }
 
-                    render();
-                }
-
-                if (paused && ga.getAlphaSolution() != null && viewGraph) {
-                    updateLinechart();
+                    if (snapshot.getAlphaSolution() != renderedAlpha) {
+                        render();
+                    }
                 }
 
-                if (ga.getAlphaSolution() != null && ga.getAlphaDuration() <= map.getBenchmark() && ga.isAlphaValid()) { // Reached benchmark
+                if (renderedSnapshot != null && renderedSnapshot.isBenchmarkReached()) { // Reached benchmark, the solver thread paused itself
                     paused = true;
-                    durationLabel.setText("Duration: " + Utils.round(ga.getAlphaDuration(), 2));
-                    fitnessLabel.setText("Fitness: " + Utils.round(ga.getAlphaFitness(), 2));
+                    durationLabel.setText("Duration: " + Utils.round(renderedSnapshot.getAlphaDuration(), 2));
+                    fitnessLabel.setText("Fitness: " + Utils.round(renderedSnapshot.getAlphaFitness(), 2));
                     durationLabel.setStyle("-fx-font-weight: bold");
                     startButton.setVisible(false);
                     startButton.setText("Start");
@@ -141,28 +156,30 @@ public class Controller {
                     mapSelector.setVisible(true);
                 }
             }
-        }.start();
+        };
+        animationTimer.start();
     }
 
     /**
-     * Functionality loop
-     * Creates next generation of Population in GeneticAlgorithm
-     *
-     * @param startNanoTime   the nano time of when the game was initialized.
-     * @param currentNanoTime the nano time of the current game loop.
+     * Draws depots and customers on mapCanvas, once per Map
      */
-    private void tick(long startNanoTime, long currentNanoTime) {
-        ga.tick(); // Takes Population in GeneticAlgorithm to next generation
-        updateGUI(startNanoTime, currentNanoTime); // Updates labels
+    private void renderMap() {
+        GraphicsContext mapGc = mapCanvas.getGraphicsContext2D();
+        mapGc.clearRect(0, 0, Map.CANVAS_WIDTH, Map.CANVAS_HEIGHT);
+        MapRenderer.renderMap(mapGc, map);
     }
 
     /**
-     * Canvas draw loop
+     * Route draw loop
+     * Draws the routes of the alpha solution in renderedSnapshot, over the depots and customers on mapCanvas
      */
     private void render() {
-        gc.clearRect(0, 0, CANVAS_WIDTH, CANVAS_HEIGHT); // Clear canvas
-        map.render(gc); // Renders depots and customers
-        ga.render(gc); // Renders alphaSolution of Population in GeneticAlgorithm
+        gc.clearRect(0, 0, Map.CANVAS_WIDTH, Map.CANVAS_HEIGHT); // Clear routes of the previous alpha
+
+        if (renderedSnapshot != null) {
+            renderedAlpha = renderedSnapshot.getAlphaSolution();
+            MapRenderer.renderRoutes(gc, renderedSnapshot.getRoutes());
+        }
     }
 
     private void initializeGUI() {
@@ -205,14 +222,15 @@ public class Controller {
      *
      * @param startNanoTime   the nano time of when the game was initialized.
      * @param currentNanoTime the nano time of the current game loop.
+     * @param snapshot latest generation, null before the first one
      */
-    private void updateGUI(long startNanoTime, long currentNanoTime) {
+    private void updateGUI(long startNanoTime, long currentNanoTime, SolverSnapshot snapshot) {
         double time = (currentNanoTime - startNanoTime) / 1000000000.0;
-        generationLabel.setText("Generation: " + ga.getGeneration());
         timeLabel.setText("Time: " + (int) time);
-        if (ga.getAlphaSolution() != null) {
-            durationLabel.setText("Duration: " + Utils.round(ga.getAlphaDuration(), 2));
-            fitnessLabel.setText("Fitness: " + Utils.round(ga.getAlphaFitness(), 2));
+        if (snapshot != null) {
+            generationLabel.setText("Generation: " + snapshot.getGeneration());
+            durationLabel.setText("Duration: " + Utils.round(snapshot.getAlphaDuration(), 2));
+            fitnessLabel.setText("Fitness: " + Utils.round(snapshot.getAlphaFitness(), 2));
         }
     }
 
@@ -222,6 +240,7 @@ public class Controller {
     @FXML
     private void togglePaused() {
         paused = !paused;
+        solverThread.setPaused(paused);
 
         if (paused) {
             startButton.setText("Start");
@@ -245,6 +264,9 @@ public class Controller {
     public void reset() {
         paused = true;
         durationLabel.setStyle("-fx-font-weight: normal");
+        animationTimer.stop();
+        solverThread.stop(); // Finishes the current generation before the Solver is shut down
+        solver.shutdown();
         ga = null;
         durationLabel.setText("Duration: 0");
         fitnessLabel.setText("Fitness: 0");
@@ -259,14 +281,14 @@ public class Controller {
     }
 
     private void initializeLineChart() {
-        alphaSolutionFitnessData = new HashMap<>();
-        populationFitnessData = new HashMap<>();
-
-        seriesAlphaSolution = new XYChart.Series();
+        seriesAlphaSolution = new XYChart.Series<>();
         seriesAlphaSolution.setName("Alpha solution");
-        seriesPopulation = new XYChart.Series();
+        seriesPopulation = new XYChart.Series<>();
         seriesPopulation.setName("Population average");
 
+        alphaSolutionFitnessData = new DownsampledSeries(seriesAlphaSolution, CHART_BUCKETS);
+        populationFitnessData = new DownsampledSeries(seriesPopulation, CHART_BUCKETS);
+
         lineChart.setCreateSymbols(false);
         lineChart.setAnimated(false);
         lineChart.setHorizontalGridLinesVisible(true);
@@ -275,43 +297,35 @@ public class Controller {
         lineChart.getData().setAll(seriesAlphaSolution, seriesPopulation);
     }
 
+    /**
+     * Fits the axes to the generations so far, the series are already up to date
+     */
     private void updateLinechart() {
-        if (!shouldUpdate) return;
-        shouldUpdate = false;
-
-        alphaSolutionFitnessData.forEach((key, value) -> {
-            seriesAlphaSolution.getData().add(new XYChart.Data<>(key, value));
-        });
-
-        populationFitnessData.forEach((key, value) -> {
-            seriesPopulation.getData().add(new XYChart.Data<>(key, value));
-        });
-
         xAxis.setLowerBound(0);
-        xAxis.setUpperBound(ga.getGeneration());
-        xAxis.setTickUnit(ga.getGeneration() / 10);
+        xAxis.setUpperBound(renderedSnapshot.getGeneration());
+        xAxis.setTickUnit(renderedSnapshot.getGeneration() / 10);
         yAxis.setLowerBound(map.getBenchmark());
         yAxis.setUpperBound(map.getBenchmark() * 1.50);
         yAxis.setTickUnit(map.getBenchmark() / 10);
-        lineChart.getData().removeAll(seriesAlphaSolution);
-        lineChart.getData().addAll(seriesAlphaSolution);
     }
 
     @FXML
     private void save() {
-        try {
-            ga.saveAlphaSolutionToFile();
-        } catch (IOException e) {
-            e.printStackTrace();
+        SolverSnapshot snapshot = solverThread.getSnapshot(); // The GeneticAlgorithm belongs to the solver thread
+        if (snapshot != null) {
+            exportService.save(snapshot.getAlphaSolution(), Paths.get("solution-" + solver.getMapName() + "-" + System.currentTimeMillis()));
         }
     }
 
     @FXML
     private void appendToCsv() {
-        try {
-            ga.appendAlphaSolutionToCsv();
-        } catch (IOException e) {
-            e.printStackTrace();
+        SolverSnapshot snapshot = solverThread.getSnapshot();
+        if (snapshot == null) {
+            return;
         }
+        Parameters parameters = ga.getParameters();
+
+        exportService.submit(solutionWriter -> snapshot.getAlphaSolution().appendToCSV(solver.getMapName(), parameters.getPopulationSize(), parameters.getCrossOverRate(),
+                parameters.getMutationRate(), parameters.getK(), snapshot.getGeneration()));
     }
 }
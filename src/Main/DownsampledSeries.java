@@ -0,0 +1,147 @@
+package Main;
+
+import javafx.scene.chart.XYChart;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Feeds a chart series with one value per generation while keeping at most 2 * maxBuckets points in it
+ * Generations are grouped in buckets, and only the minimum and maximum of every bucket are shown,
+ * so improvements and spikes stay visible. New values update the points of the last bucket in place or append two points.
+ * When the buckets run out, the bucket size doubles and the series is rebuilt once from the buckets
+ */
+public class DownsampledSeries {
+    private final XYChart.Series<Number, Number> series;
+    private final int maxBuckets;
+    private int bucketSize = 1; // Generations per bucket
+
+    // Buckets, oldest first
+    private final int[] bucketIndexes; // generation / bucketSize
+    private final int[] minGenerations;
+    private final double[] minValues;
+    private final int[] maxGenerations;
+    private final double[] maxValues;
+    private int buckets;
+
+    /**
+     * @param series Series to feed, its data is replaced
+     * @param maxBuckets Buckets shown, around the number of horizontal pixels of the chart
+     */
+    public DownsampledSeries(XYChart.Series<Number, Number> series, int maxBuckets) {
+        this.series = series;
+        this.maxBuckets = maxBuckets;
+        this.bucketIndexes = new int[maxBuckets];
+        this.minGenerations = new int[maxBuckets];
+        this.minValues = new double[maxBuckets];
+        this.maxGenerations = new int[maxBuckets];
+        this.maxValues = new double[maxBuckets];
+        series.getData().clear();
+    }
+
+    /**
+     * Adds the value of a generation. Generations must be increasing, but may be skipped
+     * @param generation
+     * @param value
+     */
+    public void add(int generation, double value) {
+        int bucketIndex = generation / bucketSize;
+
+        if (buckets > 0 && bucketIndexes[buckets - 1] == bucketIndex) {
+            int bucket = buckets - 1;
+            if (value < minValues[bucket]) {
+                minGenerations[bucket] = generation;
+                minValues[bucket] = value;
+            }
+            if (value > maxValues[bucket]) {
+                maxGenerations[bucket] = generation;
+                maxValues[bucket] = value;
+            }
+            updatePoints(bucket);
+            return;
+        }
+
+        if (buckets == maxBuckets) {
+            coarsen();
+            add(generation, value);
+            return;
+        }
+
+        int bucket = buckets++;
+        bucketIndexes[bucket] = bucketIndex;
+        minGenerations[bucket] = generation;
+        minValues[bucket] = value;
+        maxGenerations[bucket] = generation;
+        maxValues[bucket] = value;
+        series.getData().add(new XYChart.Data<>(generation, value)); // Minimum
+        series.getData().add(new XYChart.Data<>(generation, value)); // Maximum
+    }
+
+    /**
+     * Sets the two points of a bucket: its minimum and maximum, in the order of their generations
+     */
+    private void updatePoints(int bucket) {
+        XYChart.Data<Number, Number> first = series.getData().get(2 * bucket);
+        XYChart.Data<Number, Number> second = series.getData().get(2 * bucket + 1);
+
+        if (minGenerations[bucket] <= maxGenerations[bucket]) {
+            setPoint(first, minGenerations[bucket], minValues[bucket]);
+            setPoint(second, maxGenerations[bucket], maxValues[bucket]);
+        } else {
+            setPoint(first, maxGenerations[bucket], maxValues[bucket]);
+            setPoint(second, minGenerations[bucket], minValues[bucket]);
+        }
+    }
+
+    private static void setPoint(XYChart.Data<Number, Number> point, int generation, double value) {
+        point.setXValue(generation);
+        point.setYValue(value);
+    }
+
+    /**
+     * Doubles the bucket size, merges neighbouring buckets and rebuilds the series
+     */
+    private void coarsen() {
+        bucketSize *= 2;
+
+        int merged = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int bucketIndex = bucketIndexes[bucket] / 2;
+
+            if (merged > 0 && bucketIndexes[merged - 1] == bucketIndex) {
+                int target = merged - 1;
+                if (minValues[bucket] < minValues[target]) {
+                    minGenerations[target] = minGenerations[bucket];
+                    minValues[target] = minValues[bucket];
+                }
+                if (maxValues[bucket] > maxValues[target]) {
+                    maxGenerations[target] = maxGenerations[bucket];
+                    maxValues[target] = maxValues[bucket];
+                }
+            } else {
+                bucketIndexes[merged] = bucketIndex;
+                minGenerations[merged] = minGenerations[bucket];
+                minValues[merged] = minValues[bucket];
+                maxGenerations[merged] = maxGenerations[bucket];
+                maxValues[merged] = maxValues[bucket];
+                merged++;
+            }
+        }
+        buckets = merged;
+
+        List<XYChart.Data<Number, Number>> points = new ArrayList<>(2 * buckets);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            boolean minFirst = minGenerations[bucket] <= maxGenerations[bucket];
+            points.add(minFirst ? new XYChart.Data<>(minGenerations[bucket], minValues[bucket]) : new XYChart.Data<>(maxGenerations[bucket], maxValues[bucket]));
+            points.add(minFirst ? new XYChart.Data<>(maxGenerations[bucket], maxValues[bucket]) : new XYChart.Data<>(minGenerations[bucket], minValues[bucket]));
+        }
+        series.getData().setAll(points); // One change for the chart instead of one per point
+    }
+
+    /**
+     * @return Points in the series
+     */
+    public int getPoints() {
+        return 2 * buckets;
+    }
+}
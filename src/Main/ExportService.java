@@ -0,0 +1,130 @@
+package Main;
+
+import GeneticAlgorithm.Individual;
+import GeneticAlgorithm.SolutionWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes solutions and other exports on a dedicated thread, so neither the solver nor the JavaFX thread waits for the disk
+ * Exports go through a bounded queue: save() and submit() wait while it is full, offer() drops the export instead.
+ * Queued Individuals are written later, so they must not change anymore. Alpha Individuals of a GeneticAlgorithm never do
+ */
+public class ExportService {
+
+    /**
+     * One export, run on the writer thread
+     */
+    public interface Export {
+        void write(SolutionWriter solutionWriter) throws IOException;
+    }
+
+    private static final Export STOP = solutionWriter -> { }; // Queued by close() after the last export
+
+    private final BlockingQueue<Export> queue;
+    private final Thread writer;
+    private final SolutionWriter solutionWriter = new SolutionWriter(); // Only used by the writer thread
+
+    private volatile int written; // Exports written, only updated by the writer thread
+    private volatile int failed; // Exports that threw, only updated by the writer thread
+    private volatile int dropped; // Exports offer() dropped since the queue was full
+
+    /**
+     * @param capacity Exports that can wait in the queue
+     */
+    public ExportService(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::run, "export");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void run() {
+        while (true) {
+            Export export;
+            try {
+                export = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (export == STOP) {
+                return;
+            }
+
+            try {
+                export.write(solutionWriter);
+                written++;
+            } catch (IOException | RuntimeException e) {
+                failed++;
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Queues individual to be written to path in the .res format, waits while the queue is full
+     * @param individual
+     * @param path
+     */
+    public void save(Individual individual, Path path) {
+        submit(solutionWriter -> solutionWriter.write(individual, path));
+    }
+
+    /**
+     * Queues individual to be written to path in the .res format, unless the queue is full
+     * Used during a run, where a slow disk must not stall the solver
+     *
+     * @param individual
+     * @param path
+     * @return False if the export was dropped
+     */
+    public boolean offer(Individual individual, Path path) {
+        if (queue.offer(solutionWriter -> solutionWriter.write(individual, path))) {
+            return true;
+        }
+
+        dropped++;
+        return false;
+    }
+
+    /**
+     * Queues any export, waits while the queue is full
+     * @param export
+     */
+    public void submit(Export export) {
+        try {
+            queue.put(export);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the queued exports and stops the writer thread
+     */
+    public void close() {
+        submit(STOP);
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getWritten() {
+        return written;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public int getDropped() {
+        return dropped;
+    }
+}
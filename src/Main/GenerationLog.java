@@ -0,0 +1,150 @@
+package Main;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only log with one NDJSON line per generation:
+ * {"generation":1,"best":620.68,"average":701.2,"worst":812.9,"valid":true}
+ * append() only copies the numbers into a fixed ring of primitive arrays. A background thread turns them into lines
+ * and writes them through a buffered FileChannel, so memory stays constant however many generations are logged.
+ * append() waits when the writer is a whole ring behind
+ */
+public class GenerationLog {
+    private static final int CAPACITY = 4096; // Generations between the solver and the writer thread, a power of two
+    private static final int BUFFER_SIZE = 64 * 1024; // Bytes written to the channel at once
+
+    private final int[] generations = new int[CAPACITY];
+    private final double[] bestFitness = new double[CAPACITY];
+    private final double[] averageFitness = new double[CAPACITY];
+    private final double[] worstFitness = new double[CAPACITY];
+    private final boolean[] valid = new boolean[CAPACITY];
+
+    private volatile long appended; // Generations stored by append(), only updated by the solver thread
+    private volatile long written; // Generations taken by the writer thread, only updated by it
+    private volatile boolean closed;
+    private volatile IOException error; // Failure of the writer thread
+
+    private final FileChannel channel;
+    private final Thread writer;
+
+    /**
+     * Opens path for appending, so a resumed run continues the log of the interrupted one
+     * @param path
+     * @throws IOException
+     */
+    public GenerationLog(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.writer = new Thread(this::write, "generation-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Logs one generation. Only one thread may append
+     * @param generation
+     * @param best Fitness of the alpha
+     * @param average Average fitness of the population
+     * @param worst Fitness of the worst Individual
+     * @param alphaValid
+     */
+    public void append(int generation, double best, double average, double worst, boolean alphaValid) {
+        long index = appended;
+
+        while (index - written >= CAPACITY) { // Ring is full
+            if (error != null) {
+                throw new UncheckedIOException("Writing generation log failed", error);
+            }
+            LockSupport.unpark(writer);
+            Thread.yield(); // Let the writer run, also on a single core
+        }
+
+        int slot = (int) (index & (CAPACITY - 1));
+        generations[slot] = generation;
+        bestFitness[slot] = best;
+        averageFitness[slot] = average;
+        worstFitness[slot] = worst;
+        valid[slot] = alphaValid;
+
+        appended = index + 1; // Publishes the slot to the writer thread
+    }
+
+    /**
+     * Writer thread: formats and writes appended generations until close()
+     */
+    private void write() {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        StringBuilder line = new StringBuilder();
+
+        try {
+            while (true) {
+                boolean closing = closed; // Read before appended, so every generation appended before close() is seen
+                long end = appended;
+
+                if (written == end) {
+                    if (closing) {
+                        break;
+                    }
+                    LockSupport.parkNanos(1_000_000);
+                    continue;
+                }
+
+                for (long index = written; index < end; index++) {
+                    int slot = (int) (index & (CAPACITY - 1));
+                    line.setLength(0);
+                    line.append("{\"generation\":").append(generations[slot])
+                            .append(",\"best\":").append(bestFitness[slot])
+                            .append(",\"average\":").append(averageFitness[slot])
+                            .append(",\"worst\":").append(worstFitness[slot])
+                            .append(",\"valid\":").append(valid[slot])
+                            .append("}\n");
+                    written = index + 1; // The slot is copied into line, append() may reuse it
+
+                    byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                    if (buffer.remaining() < bytes.length) {
+                        flush(buffer);
+                    }
+                    buffer.put(bytes);
+                }
+
+                flush(buffer);
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the remaining generations and closes the file
+     * @throws IOException If writing failed
+     */
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writer);
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        channel.close();
+        if (error != null) {
+            throw error;
+        }
+    }
+}
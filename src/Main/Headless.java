@@ -0,0 +1,114 @@
+package Main;
+
+import GeneticAlgorithm.IslandModel;
+import GeneticAlgorithm.Parameters;
+import GeneticAlgorithm.Population;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Runs the GeneticAlgorithm without GUI, as fast as possible
+ * Writes the alpha solution in .res format and the run statistics
+ *
+ * Usage: Headless --map p01|path [--generations n] [--seconds s] [--seed n] [--stop-at-benchmark]
+ *                 [--population n] [--crossover rate] [--mutation rate] [--k n]
+ *                 [--parallel n] [--islands n] [--migration-interval n] [--migrants n] [--topology RING|FULLY_CONNECTED]
+ *                 [--granular neighbours] [--education rate] [--education-time ms]
+ *                 [--encoding ROUTES|GIANT_TOUR] [--fitness-cache n]
+ *                 [--no-duplicates] [--min-distance d] [--metrics] [--export-improvements prefix] [--generation-log file]
+ *                 [--checkpoint file] [--checkpoint-interval n] [--resume file] [--output name]
+ * Writes name.res and name.stats, name defaults to solution-map-seed
+ * A resumed run needs the parameters of the run that wrote the checkpoint, and --generations counts from generation 0
+ */
+public class Headless {
+
+    public static void main(String[] args) throws IOException {
+        Parameters parameters = new Parameters();
+        String mapName = null;
+        String output = null;
+        int maxGenerations = 0;
+        double maxSeconds = 0;
+        boolean stopAtBenchmark = false;
+        String resume = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--map": mapName = args[++i]; break;
+                case "--generations": maxGenerations = Integer.parseInt(args[++i]); break;
+                case "--seconds": maxSeconds = Double.parseDouble(args[++i]); break;
+                case "--seed": parameters.setSeed(Long.parseLong(args[++i])); break;
+                case "--stop-at-benchmark": stopAtBenchmark = true; break;
+                case "--resume": resume = args[++i]; break;
+                case "--output": output = args[++i]; break;
+                default: i = parseParameter(parameters, args, i);
+            }
+        }
+
+        if (mapName == null) {
+            throw new IllegalArgumentException("Missing --map");
+        } else if (maxGenerations == 0 && maxSeconds == 0 && !stopAtBenchmark) {
+            throw new IllegalArgumentException("Missing budget: --generations, --seconds or --stop-at-benchmark");
+        }
+
+        if (output == null) {
+            output = "solution-" + Paths.get(mapName).getFileName() + "-" + parameters.getSeed();
+        }
+
+        Solver solver = new Solver(mapName, parameters);
+        if (resume != null) {
+            solver.resume(resume);
+        }
+        solver.run(maxGenerations, maxSeconds, stopAtBenchmark);
+        solver.finishWriting();
+        solver.getGeneticAlgorithm().saveAlphaSolutionToFile(output + ".res");
+        solver.writeStatistics(output + ".stats");
+        solver.shutdown();
+
+        System.out.println(mapName + ": " + solver.getGeneticAlgorithm().getGeneration() + " generations, duration "
+                + solver.getGeneticAlgorithm().getAlphaDuration() + ", valid " + solver.getGeneticAlgorithm().isAlphaValid());
+    }
+
+    /**
+     * Applies the GeneticAlgorithm parameter at args[i] and its value
+     * Shared with Batch, where every configuration is a list of these parameters
+     *
+     * @param parameters
+     * @param args
+     * @param i
+     * @return Index of the last argument used
+     */
+    static int parseParameter(Parameters parameters, String[] args, int i) {
+        switch (args[i]) {
+            case "--population": parameters.setPopulationSize(Integer.parseInt(args[++i])); break;
+            case "--crossover": parameters.setCrossOverRate(Double.parseDouble(args[++i])); break;
+            case "--mutation": parameters.setMutationRate(Double.parseDouble(args[++i])); break;
+            case "--k": parameters.setK(Integer.parseInt(args[++i])); break;
+            case "--parallel":
+                parameters.setParallel(true);
+                parameters.setParallelism(Integer.parseInt(args[++i]));
+                break;
+            case "--islands": parameters.setIslands(Integer.parseInt(args[++i])); break;
+            case "--migration-interval": parameters.setMigrationInterval(Integer.parseInt(args[++i])); break;
+            case "--migrants": parameters.setMigrants(Integer.parseInt(args[++i])); break;
+            case "--topology": parameters.setTopology(IslandModel.Topology.valueOf(args[++i])); break;
+            case "--granular":
+                parameters.setGranular(true);
+                parameters.setNeighbours(Integer.parseInt(args[++i]));
+                break;
+            case "--education": parameters.setEducationRate(Double.parseDouble(args[++i])); break;
+            case "--education-time": parameters.setEducationTimeLimit(Long.parseLong(args[++i])); break;
+            case "--encoding": parameters.setEncoding(Population.Encoding.valueOf(args[++i])); break;
+            case "--fitness-cache": parameters.setFitnessCacheSize(Integer.parseInt(args[++i])); break;
+            case "--no-duplicates": parameters.setDuplicateSuppression(true); break;
+            case "--min-distance": parameters.setMinDistance(Double.parseDouble(args[++i])); break;
+            case "--metrics": parameters.setMetrics(true); break;
+            case "--export-improvements": parameters.setImprovementsPrefix(args[++i]); break;
+            case "--generation-log": parameters.setGenerationLogFile(args[++i]); break;
+            case "--checkpoint": parameters.setCheckpointFile(args[++i]); break;
+            case "--checkpoint-interval": parameters.setCheckpointInterval(Integer.parseInt(args[++i])); break;
+            default: throw new IllegalArgumentException("Unknown argument: " + args[i]);
+        }
+        return i;
+    }
+}
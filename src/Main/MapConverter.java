@@ -0,0 +1,24 @@
+package Main;
+
+import Map.MapParser;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Converts a map between the Cordeau text format and the binary format
+ *
+ * Usage: MapConverter input output
+ * input is a map path or the name of a bundled map, output is written in the binary format if it ends with .bin
+ */
+public class MapConverter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: MapConverter input output");
+        }
+
+        MapParser.convert(args[0], Paths.get(args[1]));
+        System.out.println(args[0] + " -> " + args[1]);
+    }
+}
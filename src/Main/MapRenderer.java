@@ -0,0 +1,67 @@
+package Main;
+
+import Map.Map;
+import MapObjects.Customer;
+import MapObjects.Depot;
+import MapObjects.Vehicle;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+import java.util.List;
+
+/**
+ * Draws Maps and routes on canvas
+ * The only place where map objects meet JavaFX, so the solver runs without JavaFX on the classpath
+ */
+public class MapRenderer {
+    private static final Color[] DEPOT_COLORS = {Color.RED, Color.ORANGE, Color.GOLD, Color.GREENYELLOW, Color.GREEN, Color.AQUA, Color.BLUE, Color.INDIGO, Color.VIOLET}; // One per Depot.COLORS
+
+    private MapRenderer() {
+    }
+
+    /**
+     * Draws depots as colored dots and customers as gray circles
+     * @param gc
+     * @param map
+     */
+    public static void renderMap(GraphicsContext gc, Map map) {
+        for (Depot depot : map.getDepots()) {
+            gc.setFill(getColor(depot));
+            gc.fillOval(depot.getPixelX() - 5, depot.getPixelY() - 5, 10, 10);
+        }
+
+        gc.setStroke(Color.GRAY);
+        for (Customer customer : map.getCustomers()) {
+            gc.strokeOval(customer.getPixelX() - 2, customer.getPixelY() - 2, 5, 5);
+        }
+    }
+
+    /**
+     * Draws every route from the start depot through the customers to the end depot, as one stroke in the color of the start depot
+     * @param gc
+     * @param routes
+     */
+    public static void renderRoutes(GraphicsContext gc, List<Vehicle> routes) {
+        for (Vehicle vehicle : routes) {
+            List<Customer> route = vehicle.getRoute();
+            if (route.isEmpty()) {
+                continue;
+            }
+
+            gc.setStroke(getColor(vehicle.getStartDepot()));
+            gc.beginPath();
+            gc.moveTo(vehicle.getStartDepot().getPixelX(), vehicle.getStartDepot().getPixelY());
+
+            for (Customer customer : route) {
+                gc.lineTo(customer.getPixelX(), customer.getPixelY());
+            }
+
+            gc.lineTo(vehicle.getEndDepot().getPixelX(), vehicle.getEndDepot().getPixelY());
+            gc.stroke();
+        }
+    }
+
+    private static Color getColor(Depot depot) {
+        return DEPOT_COLORS[depot.getColorIndex()];
+    }
+}
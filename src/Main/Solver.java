@@ -0,0 +1,379 @@
+package Main;
+
+import GeneticAlgorithm.Checkpoint;
+import GeneticAlgorithm.GeneticAlgorithm;
+import GeneticAlgorithm.Individual;
+import GeneticAlgorithm.Metrics;
+import GeneticAlgorithm.Parameters;
+import Map.Map;
+import Utils.Utils;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Runs GeneticAlgorithm on a Map, independent of the GUI
+ * Used by Headless to run as fast as possible, and by Controller on a SolverThread
+ * Keeps the run statistics, logs every tick() when a generation log file is set (with islands only the migration generations),
+ * exports every alpha improvement when an improvements prefix is set,
+ * and takes a checkpoint every checkpointInterval generations when a checkpoint file is set
+ * With metrics on, the Metrics are registered as a SolverMetricsMXBean until shutdown()
+ */
+public class Solver {
+    private static final AtomicInteger solvers = new AtomicInteger(); // Numbers the MBeans of Solvers running at the same time
+
+    private String mapName;
+    private Map map;
+    private GeneticAlgorithm ga;
+    private GenerationLog generationLog; // Null when the generation log is off
+    private ExportService exportService; // Writes alpha improvements, null when they are not exported
+    private String improvementsPrefix;
+    private double exportedFitness = Double.MAX_VALUE; // Fitness of the last exported alpha
+    private Checkpoint checkpoint; // Null when checkpoints are off
+    private int checkpointInterval; // Generations between checkpoints
+    private int checkpointGeneration; // Generation of the last checkpoint, or of the first tick()
+    private ObjectName metricsName; // Name of the registered SolverMetricsMXBean, null when metrics are off
+
+    private long startNanoTime = -1; // Set by the first tick()
+    private int startGeneration; // Generation of the first tick(), not 0 after resume()
+    private long benchmarkNanoTime = -1; // Time when a valid alpha first reached the benchmark
+    private long startAllocatedBytes = -1; // Bytes allocated by all threads after the first tick(), -1 if not supported
+    private int allocationStartGeneration = -1; // Generation when startAllocatedBytes was measured
+
+    /**
+     * Parses map and creates GeneticAlgorithm
+     * @param mapName
+     * @param parameters
+     * @throws IOException
+     */
+    public Solver(String mapName, Parameters parameters) throws IOException {
+        this.mapName = mapName;
+        this.map = new Map(mapName);
+        this.ga = new GeneticAlgorithm(mapName, map.getDepots(), parameters);
+
+        if (parameters.getImprovementsPrefix() != null) {
+            this.exportService = new ExportService(64);
+            this.improvementsPrefix = parameters.getImprovementsPrefix();
+        }
+
+        if (parameters.getGenerationLogFile() != null) {
+            this.generationLog = new GenerationLog(Paths.get(parameters.getGenerationLogFile()));
+        }
+
+        if (parameters.getCheckpointFile() != null && parameters.getCheckpointInterval() > 0) {
+            this.checkpoint = new Checkpoint(Paths.get(parameters.getCheckpointFile()));
+            this.checkpointInterval = parameters.getCheckpointInterval();
+        }
+
+        if (ga.getMetrics() != null) {
+            registerMetrics();
+        }
+    }
+
+    private void registerMetrics() {
+        try {
+            metricsName = new ObjectName("MDVRP:type=Solver,map=" + ObjectName.quote(mapName) + ",id=" + solvers.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new SolverMetrics(this, ga.getMetrics()), metricsName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Registering metrics failed", e);
+        }
+    }
+
+    /**
+     * Continues the run of a checkpoint. Must be called before the first tick()
+     * The Solver must have the same Map and parameters as the run that wrote the checkpoint
+     *
+     * @param fileName checkpoint file
+     * @throws IOException
+     */
+    public void resume(String fileName) throws IOException {
+        Checkpoint.restore(ga, Paths.get(fileName));
+    }
+
+    /**
+     * Runs one generation, with islands the generations up to the next migration
+     */
+    public void tick() {
+        tick(0);
+    }
+
+    /**
+     * @param maxGenerations generation the islands stop at, even before the next migration, 0 for no limit
+     */
+    private void tick(int maxGenerations) {
+        if (startNanoTime == -1) {
+            startNanoTime = System.nanoTime();
+            startGeneration = ga.getGeneration();
+            checkpointGeneration = startGeneration;
+        }
+
+        ga.tick(maxGenerations);
+
+        if (allocationStartGeneration == -1) {
+            startAllocatedBytes = getAllocatedBytes(); // The initial population is not part of the steady state
+            allocationStartGeneration = ga.getGeneration();
+        }
+
+        if (exportService != null) {
+            exportImprovement();
+        }
+
+        if (generationLog != null) {
+            generationLog.append(ga.getGeneration(), ga.getAlphaFitness(), ga.getAverageFitness(), ga.getWorstFitness(), ga.isAlphaValid());
+        }
+
+        if (checkpoint != null && ga.getGeneration() / checkpointInterval > checkpointGeneration / checkpointInterval) {
+            checkpointGeneration = ga.getGeneration(); // Islands can pass a multiple of checkpointInterval within one tick()
+            try {
+                checkpoint.save(ga);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        if (benchmarkNanoTime == -1 && isBenchmarkReached()) {
+            benchmarkNanoTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * Runs generations until one of the budgets is used
+     * @param maxGenerations generation budget, 0 for no limit
+     * @param maxSeconds time budget, 0 for no limit
+     * @param stopAtBenchmark stops when a valid alpha reaches the benchmark
+     */
+    public void run(int maxGenerations, double maxSeconds, boolean stopAtBenchmark) {
+        while (true) {
+            tick(maxGenerations);
+
+            if (maxGenerations != 0 && ga.getGeneration() >= maxGenerations) {
+                return;
+            } else if (maxSeconds != 0 && getElapsedSeconds() >= maxSeconds) {
+                return;
+            } else if (stopAtBenchmark && isBenchmarkReached()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Queues the alpha if it improved since the last export. Dropped if the export queue is full
+     */
+    private void exportImprovement() {
+        Individual alpha = ga.getAlphaSolution();
+
+        if (alpha.getFitness() < exportedFitness) {
+            exportedFitness = alpha.getFitness();
+            exportService.offer(alpha, Paths.get(improvementsPrefix + "-" + ga.getGeneration() + ".res"));
+        }
+    }
+
+    public boolean isBenchmarkReached() {
+        return ga.getAlphaSolution() != null && ga.getAlphaDuration() <= map.getBenchmark() && ga.isAlphaValid();
+    }
+
+    public double getElapsedSeconds() {
+        return startNanoTime == -1 ? 0.0 : (System.nanoTime() - startNanoTime) / 1000000000.0;
+    }
+
+    /**
+     * @return Seconds until the benchmark was reached, -1 if not reached
+     */
+    public double getTimeToBenchmark() {
+        return benchmarkNanoTime == -1 ? -1.0 : (benchmarkNanoTime - startNanoTime) / 1000000000.0;
+    }
+
+    public double getGenerationsPerSecond() {
+        double elapsedSeconds = getElapsedSeconds();
+        return elapsedSeconds == 0.0 ? 0.0 : (ga.getGeneration() - startGeneration) / elapsedSeconds;
+    }
+
+    /**
+     * @return Fitness evaluations per second, 0 when metrics are off
+     */
+    public double getEvaluationsPerSecond() {
+        double elapsedSeconds = getElapsedSeconds();
+        Metrics metrics = ga.getMetrics();
+        return elapsedSeconds == 0.0 || metrics == null ? 0.0 : metrics.getEvaluations() / elapsedSeconds;
+    }
+
+    /**
+     * Allocation counter of the generation loop, the first tick() (the initial population) excluded
+     * Only counts threads that are still alive, which includes the breeding workers of parallel mode
+     * @return Bytes allocated per generation, -1 if the JVM can not measure allocation
+     */
+    public double getAllocatedBytesPerGeneration() {
+        int generations = ga.getGeneration() - allocationStartGeneration;
+        if (startAllocatedBytes == -1 || allocationStartGeneration == -1 || generations <= 0) {
+            return -1.0;
+        }
+
+        return (getAllocatedBytes() - startAllocatedBytes) / (double) generations;
+    }
+
+    /**
+     * @return Bytes allocated by all live threads, -1 if not supported
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!allocationBean.isThreadAllocatedMemorySupported() || !allocationBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+
+        long allocatedBytes = 0;
+        for (long bytes : allocationBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) {
+            if (bytes != -1) {
+                allocatedBytes += bytes;
+            }
+        }
+        return allocatedBytes;
+    }
+
+    /**
+     * @return Gap between alpha duration and benchmark in percent, NaN if the map has no benchmark
+     */
+    public double getGap() {
+        if (map.getBenchmark() == 0) {
+            return Double.NaN;
+        }
+        return (ga.getAlphaDuration() - map.getBenchmark()) / map.getBenchmark() * 100;
+    }
+
+    /**
+     * Writes run statistics as "key: value" lines
+     * @param fileName
+     * @throws IOException
+     */
+    public void writeStatistics(String fileName) throws IOException {
+        Parameters parameters = ga.getParameters();
+        BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
+
+        writer.write("map: " + mapName);
+        writer.newLine();
+        writer.write("seed: " + parameters.getSeed());
+        writer.newLine();
+        writer.write("populationSize: " + parameters.getPopulationSize());
+        writer.newLine();
+        writer.write("crossOverRate: " + parameters.getCrossOverRate());
+        writer.newLine();
+        writer.write("mutationRate: " + parameters.getMutationRate());
+        writer.newLine();
+        writer.write("k: " + parameters.getK());
+        writer.newLine();
+        writer.write("generations: " + ga.getGeneration());
+        writer.newLine();
+        writer.write("seconds: " + Utils.round(getElapsedSeconds(), 3));
+        writer.newLine();
+        writer.write("generationsPerSecond: " + Utils.round(getGenerationsPerSecond(), 2));
+        writer.newLine();
+        writer.write("allocatedBytesPerGeneration: " + Math.round(getAllocatedBytesPerGeneration()));
+        writer.newLine();
+        writer.write("fitnessCacheHitRate: " + Utils.round(ga.getFitnessCacheHitRate(), 3));
+        writer.newLine();
+        writer.write("duplicateRate: " + Utils.round(ga.getDuplicateRate(), 3));
+        writer.newLine();
+        writer.write("improvementsExported: " + (exportService == null ? 0 : exportService.getWritten()));
+        writer.newLine();
+        writer.write("improvementsDropped: " + (exportService == null ? 0 : exportService.getDropped()));
+        writer.newLine();
+        writer.write("checkpoints: " + (checkpoint == null ? 0 : checkpoint.getWritten()));
+        writer.newLine();
+        writer.write("checkpointsSkipped: " + (checkpoint == null ? 0 : checkpoint.getSkipped()));
+        writer.newLine();
+        writer.write("checkpointBytes: " + (checkpoint == null ? 0 : checkpoint.getBytes()));
+        writer.newLine();
+        writer.write("checkpointSnapshotMillis: " + (checkpoint == null ? 0.0 : Utils.round(checkpoint.getAverageSnapshotMillis(), 3)));
+        writer.newLine();
+        writer.write("checkpointWriteMillis: " + (checkpoint == null ? 0.0 : Utils.round(checkpoint.getAverageWriteMillis(), 3)));
+        writer.newLine();
+        Metrics metrics = ga.getMetrics();
+        if (metrics != null) {
+            writer.write("evaluations: " + metrics.getEvaluations());
+            writer.newLine();
+            writer.write("evaluationsPerSecond: " + Math.round(getEvaluationsPerSecond()));
+            writer.newLine();
+            for (Metrics.Phase phase : Metrics.Phase.values()) {
+                writer.write(phase.getKey() + "Millis: " + Utils.round(metrics.getMillis(phase), 3));
+                writer.newLine();
+                writer.write(phase.getKey() + "P99Micros: " + Utils.round(metrics.getPercentileMicros(phase, 99), 3));
+                writer.newLine();
+            }
+            for (Metrics.Operator operator : Metrics.Operator.values()) {
+                writer.write(operator.getKey() + "Count: " + metrics.getCount(operator));
+                writer.newLine();
+            }
+        }
+        writer.write("fitness: " + Utils.round(ga.getAlphaFitness(), 2));
+        writer.newLine();
+        writer.write("duration: " + Utils.round(ga.getAlphaDuration(), 2));
+        writer.newLine();
+        writer.write("valid: " + ga.isAlphaValid());
+        writer.newLine();
+        writer.write("benchmark: " + map.getBenchmark());
+        writer.newLine();
+        writer.write("gap: " + (map.getBenchmark() == 0 ? "" : Utils.round(getGap(), 2)));
+        writer.newLine();
+        writer.write("timeToBenchmark: " + Utils.round(getTimeToBenchmark(), 3));
+        writer.newLine();
+
+        writer.close();
+    }
+
+    /**
+     * Waits until the exported improvements, the generation log and the last checkpoint are written
+     * @throws IOException If writing failed
+     */
+    public void finishWriting() throws IOException {
+        if (exportService != null) {
+            exportService.close();
+        }
+        if (generationLog != null) {
+            generationLog.close();
+        }
+        if (checkpoint != null) {
+            checkpoint.close();
+        }
+    }
+
+    /**
+     * Stops worker threads and unregisters the metrics MBean
+     */
+    public void shutdown() {
+        ga.shutdown();
+
+        if (metricsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+            } catch (JMException e) {
+                throw new IllegalStateException("Unregistering metrics failed", e);
+            }
+            metricsName = null;
+        }
+    }
+
+    public String getMapName() {
+        return mapName;
+    }
+
+    public Map getMap() {
+        return map;
+    }
+
+    public GeneticAlgorithm getGeneticAlgorithm() {
+        return ga;
+    }
+}
@@ -0,0 +1,79 @@
+package Main;
+
+import GeneticAlgorithm.Individual;
+import GeneticAlgorithm.Metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the Metrics of a Solver as SolverMetricsMXBean
+ * Read from the JMX thread while the Solver runs, so values can be one generation behind
+ */
+public class SolverMetrics implements SolverMetricsMXBean {
+    private final Solver solver;
+    private final Metrics metrics;
+
+    public SolverMetrics(Solver solver, Metrics metrics) {
+        this.solver = solver;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String getMapName() {
+        return solver.getMapName();
+    }
+
+    @Override
+    public int getGeneration() {
+        return solver.getGeneticAlgorithm().getGeneration();
+    }
+
+    @Override
+    public double getAlphaFitness() {
+        Individual alpha = solver.getGeneticAlgorithm().getAlphaSolution();
+        return alpha == null ? Double.NaN : alpha.getFitness(); // No alpha before the initial population
+    }
+
+    @Override
+    public double getGenerationsPerSecond() {
+        return solver.getGenerationsPerSecond();
+    }
+
+    @Override
+    public long getEvaluations() {
+        return metrics.getEvaluations();
+    }
+
+    @Override
+    public double getEvaluationsPerSecond() {
+        return solver.getEvaluationsPerSecond();
+    }
+
+    @Override
+    public Map<String, Double> getPhaseMillis() {
+        Map<String, Double> phaseMillis = new LinkedHashMap<>();
+        for (Metrics.Phase phase : Metrics.Phase.values()) {
+            phaseMillis.put(phase.getKey(), metrics.getMillis(phase));
+        }
+        return phaseMillis;
+    }
+
+    @Override
+    public Map<String, Double> getPhaseP99Micros() {
+        Map<String, Double> phaseMicros = new LinkedHashMap<>();
+        for (Metrics.Phase phase : Metrics.Phase.values()) {
+            phaseMicros.put(phase.getKey(), metrics.getPercentileMicros(phase, 99));
+        }
+        return phaseMicros;
+    }
+
+    @Override
+    public Map<String, Long> getOperatorCounts() {
+        Map<String, Long> operatorCounts = new LinkedHashMap<>();
+        for (Metrics.Operator operator : Metrics.Operator.values()) {
+            operatorCounts.put(operator.getKey(), metrics.getCount(operator));
+        }
+        return operatorCounts;
+    }
+}
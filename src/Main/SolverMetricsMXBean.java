@@ -0,0 +1,37 @@
+package Main;
+
+import java.util.Map;
+
+/**
+ * Live view of a running Solver over JMX, registered by Solver when metrics are on
+ * Phase and operator names are the keys of GeneticAlgorithm.Metrics.Phase and GeneticAlgorithm.Metrics.Operator
+ */
+public interface SolverMetricsMXBean {
+
+    String getMapName();
+
+    int getGeneration();
+
+    double getAlphaFitness();
+
+    double getGenerationsPerSecond();
+
+    long getEvaluations();
+
+    double getEvaluationsPerSecond();
+
+    /**
+     * @return Total milliseconds per phase
+     */
+    Map<String, Double> getPhaseMillis();
+
+    /**
+     * @return 99th percentile of one interval per phase, in microseconds
+     */
+    Map<String, Double> getPhaseP99Micros();
+
+    /**
+     * @return Invocations per operator
+     */
+    Map<String, Long> getOperatorCounts();
+}
@@ -0,0 +1,86 @@
+package Main;
+
+import GeneticAlgorithm.GeneticAlgorithm;
+import GeneticAlgorithm.Individual;
+import MapObjects.Vehicle;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable state of a Solver after one generation, handed from the solver thread to the GUI
+ * The routes are decoded on the solver thread, and only again when the alpha changed
+ */
+public class SolverSnapshot {
+    private final int generation;
+    private final Individual alphaSolution; // Never changed by the GeneticAlgorithm, only replaced
+    private final List<Vehicle> routes; // Routes of alphaSolution, must not be changed
+    private final double alphaFitness;
+    private final double alphaDuration;
+    private final double averageFitness; // Average fitness of the population
+    private final boolean alphaValid;
+    private final boolean benchmarkReached;
+
+    private SolverSnapshot(int generation, Individual alphaSolution, List<Vehicle> routes, double averageFitness, boolean benchmarkReached) {
+        this.generation = generation;
+        this.alphaSolution = alphaSolution;
+        this.routes = routes;
+        this.alphaFitness = alphaSolution.getFitness();
+        this.alphaDuration = alphaSolution.getDuration();
+        this.averageFitness = averageFitness;
+        this.alphaValid = alphaSolution.isValid();
+        this.benchmarkReached = benchmarkReached;
+    }
+
+    /**
+     * Takes a snapshot of solver. Must be called on the thread running solver.tick()
+     * @param solver
+     * @param previous Snapshot of an earlier generation, its routes are reused if the alpha is the same. May be null
+     * @return Null before the first generation
+     */
+    static SolverSnapshot of(Solver solver, SolverSnapshot previous) {
+        GeneticAlgorithm ga = solver.getGeneticAlgorithm();
+        Individual alphaSolution = ga.getAlphaSolution();
+        if (alphaSolution == null) {
+            return null;
+        }
+
+        List<Vehicle> routes = previous != null && previous.alphaSolution == alphaSolution
+                ? previous.routes
+                : Collections.unmodifiableList(alphaSolution.getVehicles());
+
+        return new SolverSnapshot(ga.getGeneration(), alphaSolution, routes, ga.getAverageFitness(), solver.isBenchmarkReached());
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public Individual getAlphaSolution() {
+        return alphaSolution;
+    }
+
+    public List<Vehicle> getRoutes() {
+        return routes;
+    }
+
+    public double getAlphaFitness() {
+        return alphaFitness;
+    }
+
+    public double getAlphaDuration() {
+        return alphaDuration;
+    }
+
+    public double getAverageFitness() {
+        return averageFitness;
+    }
+
+    public boolean isAlphaValid() {
+        return alphaValid;
+    }
+
+    public boolean isBenchmarkReached() {
+        return benchmarkReached;
+    }
+}
@@ -0,0 +1,83 @@
+package Main;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a Solver on its own thread, so neither a slow generation nor a slow frame holds up the other
+ * After every generation the latest SolverSnapshot replaces the previous one in a single slot.
+ * The GUI takes whichever snapshot is there when it draws a frame, skipped snapshots are never drawn.
+ * The thread parks while paused, and pauses itself when the benchmark is reached
+ */
+public class SolverThread {
+    private final Solver solver; // Only used by the thread once it is started
+    private final Thread thread;
+    private final AtomicReference<SolverSnapshot> snapshot = new AtomicReference<>(); // Latest generation
+
+    private volatile boolean paused = true;
+    private volatile boolean stopped;
+
+    public SolverThread(Solver solver) {
+        this.solver = solver;
+        this.thread = new Thread(this::run, "solver");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    private void run() {
+        SolverSnapshot latest = null;
+
+        while (!stopped) {
+            if (paused) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            solver.tick();
+            latest = SolverSnapshot.of(solver, latest);
+            snapshot.set(latest);
+
+            if (latest != null && latest.isBenchmarkReached()) {
+                paused = true;
+            }
+        }
+    }
+
+    /**
+     * @param paused True to stop after the current generation, false to continue
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        if (!paused) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Stops the thread and waits for the current generation to finish, after which the Solver may be shut down
+     */
+    public void stop() {
+        stopped = true;
+        LockSupport.unpark(thread);
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Snapshot of the latest generation, null before the first one
+     */
+    public SolverSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+}
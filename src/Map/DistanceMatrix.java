@@ -0,0 +1,117 @@
+package Map;
+
+import MapObjects.Customer;
+import MapObjects.Depot;
+import MapObjects.MapObject;
+import Utils.Utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Precomputed euclidean distances between all depots and customers in a map
+ * Depots get index [0, depots>, customers get index [depots, depots + customers>
+ * Stored row by row in one flat array, so walking a route reads from a single block of memory
+ */
+public class DistanceMatrix {
+    private static final int MAX_ENTRIES = Integer.MAX_VALUE - 8; // Largest array most JVMs can allocate
+    public static final int MAX_SIZE = (int) Math.sqrt(MAX_ENTRIES); // Depots plus customers that fit in the dense matrix
+
+    private final int size; // Number of indexed map objects
+    private final int depotsCount;
+    private final double[] distances; // distances[from * size + to]
+    private NeighbourLists neighbourLists; // Nearest customers, built for the last requested k
+    private int neighbourListsK; // Requested k of neighbourLists, can be larger than the number of other customers
+
+    /**
+     * Assigns a dense index to every depot and customer and calculates all distances
+     * @param depots
+     * @param customers
+     * @throws IllegalArgumentException If the map has more than MAX_SIZE depots and customers
+     */
+    public DistanceMatrix(List<Depot> depots, List<Customer> customers) {
+        size = depots.size() + customers.size();
+        depotsCount = depots.size();
+        if ((long) size * size > MAX_ENTRIES) {
+            throw new IllegalArgumentException("Map has " + size + " depots and customers, the distance matrix holds at most " + MAX_SIZE);
+        }
+        distances = new double[size * size];
+
+        MapObject[] mapObjects = new MapObject[size];
+        int index = 0;
+        for (Depot depot : depots) {
+            mapObjects[index++] = depot;
+        }
+        for (Customer customer : customers) {
+            mapObjects[index++] = customer;
+        }
+
+        for (int from = 0; from < size; from++) {
+            MapObject a = mapObjects[from];
+            for (int to = from + 1; to < size; to++) {
+                MapObject b = mapObjects[to];
+                double distance = Utils.euclideanDistance(a.getX(), b.getX(), a.getY(), b.getY());
+                distances[from * size + to] = distance;
+                distances[to * size + from] = distance;
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            mapObjects[i].setDistanceMatrix(this, i);
+        }
+    }
+
+    /**
+     * @param from index of first map object
+     * @param to index of second map object
+     * @return Euclidean distance between the two map objects
+     */
+    public double get(int from, int to) {
+        return distances[from * size + to];
+    }
+
+    public double get(MapObject from, MapObject to) {
+        return distances[from.getIndex() * size + to.getIndex()];
+    }
+
+    /**
+     * Builds the k nearest customers of every customer, or returns them if already built for k
+     * @param k
+     * @return
+     */
+    public synchronized NeighbourLists getNeighbourLists(int k) {
+        if (neighbourLists != null && neighbourListsK == k) {
+            return neighbourLists;
+        }
+
+        neighbourListsK = k;
+        int customersCount = size - depotsCount;
+        k = Math.min(k, customersCount - 1);
+        int[] neighbours = new int[customersCount * k];
+        Integer[] others = new Integer[customersCount - 1];
+
+        for (int customer = depotsCount; customer < size; customer++) {
+            int from = customer;
+            int i = 0;
+            for (int other = depotsCount; other < size; other++) {
+                if (other != customer) {
+                    others[i++] = other;
+                }
+            }
+
+            Arrays.sort(others, Comparator.comparingDouble(other -> get(from, other)));
+
+            for (i = 0; i < k; i++) {
+                neighbours[(customer - depotsCount) * k + i] = others[i];
+            }
+        }
+
+        neighbourLists = new NeighbourLists(k, depotsCount, neighbours);
+        return neighbourLists;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -3,20 +3,27 @@ package Map;
 import MapObjects.Customer;
 import MapObjects.Depot;
 import MapObjects.Vehicle;
-import javafx.scene.canvas.GraphicsContext;
 
 import java.io.IOException;
 import java.util.List;
 
 /**
- * Map is a visual representation of the map file
- * Draws Depots and Customers on Canvas
+ * Map is a representation of the map file
+ * Holds the Depots and Customers, and their positions on the canvas of the GUI
  */
 public class Map {
+    // Canvas
+    public final static int CANVAS_WIDTH = 500; // Canvas width set in View.fxml
+    public final static int CANVAS_HEIGHT = 500; // Canvas height set in View.fxml
+    public final static int CANVAS_MARGIN = 10; // The margin avoids that extreme points are drawn outside canvas
+
+    public static boolean verbose = false; // Used to enable logging of the parser with System.out.println()
+
     // Lists
     private List<Depot> depots; // All depots in map
     private List<Customer> customers; // All customers in map
     private List<Vehicle> vehicles; // All vehicles in map
+    private DistanceMatrix distanceMatrix; // Distances between all depots and customers
     private double benchmarkFitness;
 
     // Map extreme values: used to calculate scales
@@ -41,45 +48,30 @@ public class Map {
         this.depots = mapParser.getDepots();
         this.customers = mapParser.getCustomers();
         this.vehicles = mapParser.getVehicles();
+        this.distanceMatrix = mapParser.getDistanceMatrix();
         this.benchmarkFitness = mapParser.getBenchmark();
-    }
-
-    private void resetExtremeValues() {
-        maximumX = -Integer.MAX_VALUE;
-        maximumY = -Integer.MAX_VALUE;
-        minimumX = Integer.MAX_VALUE;
-        minimumY = Integer.MAX_VALUE;
-    }
-
-    /**
-     * Draws depots and customers in canvas
-     * @param gc
-     */
-    public void render(GraphicsContext gc) {
-        renderDepots(gc);
-        renderCustomers(gc);
+        calculatePixelCoordinates();
     }
 
     /**
-     * Draws depots in canvas
-     * @param gc
+     * Stores the canvas position of every depot and customer, while the scales still belong to this Map
      */
-    private void renderDepots(GraphicsContext gc) {
+    private void calculatePixelCoordinates() {
         for (Depot depot : depots) {
-            depot.render(gc);
+            depot.calculatePixelCoordinates();
         }
-    }
-
-    /**
-     * Draws customers in canvas
-     * @param gc
-     */
-    private void renderCustomers(GraphicsContext gc) {
         for (Customer customer : customers) {
-            customer.render(gc);
+            customer.calculatePixelCoordinates();
         }
     }
 
+    private void resetExtremeValues() {
+        maximumX = -Integer.MAX_VALUE;
+        maximumY = -Integer.MAX_VALUE;
+        minimumX = Integer.MAX_VALUE;
+        minimumY = Integer.MAX_VALUE;
+    }
+
     public int getDepotsSize() {
         return depots.size();
     }
@@ -104,6 +96,10 @@ public class Map {
         return vehicles;
     }
 
+    public DistanceMatrix getDistanceMatrix() {
+        return distanceMatrix;
+    }
+
     public double getBenchmark()
     {
         return benchmarkFitness;
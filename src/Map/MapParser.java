@@ -1,40 +1,92 @@
 package Map;
 
-import Main.Controller;
-import Utils.Utils;
 import MapObjects.Customer;
 import MapObjects.Depot;
 import MapObjects.Vehicle;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
  * Parses map file
+ * A map is either a filesystem path or the name of a bundled map in resources/maps
+ * Reads the Cordeau text format and a compact binary format, see writeBinary()
  */
 public class MapParser {
+    private static final int BINARY_MAGIC = 0x4D445652; // "MDVR"
+    private static final int BINARY_VERSION = 1;
+
     private List<Depot> depots = new ArrayList<>();
     private List<Customer> customers = new ArrayList<>();
     private List<Vehicle> vehicles = new ArrayList<>();
+    private DistanceMatrix distanceMatrix;
     private double benchmarkFitness;
 
     /**
      * Parser map file
+     * Builds distance matrix
      * Assigns customers to nearest depot
      * @param fileName
      * @throws IOException
      */
     public MapParser(String fileName) throws IOException {
         parseMapFile(fileName);
+        distanceMatrix = new DistanceMatrix(depots, customers);
         assignCustomersToNearestDepot();
         parseResult(fileName);
     }
 
+    /**
+     * Only parses, used by convert()
+     */
+    private MapParser() {
+    }
+
+    /**
+     * Converts a map between the Cordeau text format and the binary format, without building the distance matrix
+     * @param fileName map to read, in either format
+     * @param output written in the binary format if it ends with .bin, otherwise as text
+     * @throws IOException
+     */
+    public static void convert(String fileName, Path output) throws IOException {
+        MapParser mapParser = new MapParser();
+        mapParser.parseMapFile(fileName);
+
+        if (output.toString().endsWith(".bin")) {
+            mapParser.writeBinary(output);
+        } else {
+            mapParser.writeText(output);
+        }
+    }
+
+    /**
+     * Reads only the header of a map file, without parsing customers or building the distance matrix
+     * @param fileName map to read, in either format
+     * @return Number of customers n
+     * @throws IOException
+     */
+    public static int readCustomerCount(String fileName) throws IOException {
+        ByteBuffer buffer = readMapFile(fileName);
+
+        if (buffer.remaining() >= 4 && buffer.getInt(buffer.position()) == BINARY_MAGIC) {
+            return buffer.getInt(buffer.position() + 12); // magic, version, m, n
+        }
+
+        MapTokenizer tokenizer = new MapTokenizer(buffer);
+        tokenizer.nextInt(); // m
+        return tokenizer.nextInt(); // n
+    }
 
     /**
      * Parses map file
@@ -42,70 +94,22 @@ public class MapParser {
      * @throws IOException
      */
     private void parseMapFile(String fileName) throws IOException {
-        ClassLoader classLoader = getClass().getClassLoader();
-        File file = new File(classLoader.getResource("resources/maps/" + fileName).getFile());
-        BufferedReader br = new BufferedReader(new FileReader(file));
-        String line;
-        int index = 0;
-        int depotIndex = 0;
-
-        int maxVehicles = 0; // m: maximum number of vehicles available in each depot
-        int totalCustomers = 0; // n: total number of customers
-        int depotsCount = 0; // t: number of depots
-
-        if (Controller.verbose) {
+        ByteBuffer buffer = readMapFile(fileName);
+
+        if (Map.verbose) {
             System.out.println("========= Parsing map file =========");
         }
-        while ((line = br.readLine()) != null) {
-            String[] stringLineArr = line.trim().split("\\s+");
-            int[] lineArr = Arrays.stream(stringLineArr).mapToInt(Integer::parseInt).toArray();
-
-            if (index == 0) { // Map info: m n t
-                if (Controller.verbose) {
-                    System.out.println("Map info: " + line);
-                }
-                maxVehicles = lineArr[0];
-                totalCustomers = lineArr[1];
-                depotsCount = lineArr[2];
-            } else if (index <= depotsCount) { // Depot info: The next t lines contain, the following information: D Q
-                if (Controller.verbose) {
-                    System.out.println("Depot info: " + line);
-                }
-                Depot depot = new Depot(lineArr[0], lineArr[1], maxVehicles);
-                depots.add(depot);
-            } else if (index <= depotsCount + totalCustomers) { // Customer: id, x, y, d, q
-                if (Controller.verbose) {
-                    System.out.println("Customer info: " + line);
-                }
-                Customer customer = new Customer(Integer.toString(lineArr[0]), lineArr[1], lineArr[2], lineArr[3], lineArr[4]);
-                customers.add(customer);
-                setExtremeValues(lineArr[1], lineArr[2]);
 
-            } else if (depotIndex <= depotsCount) { // Depot coordinates: id, x, y
-                if (Controller.verbose) {
-                    System.out.println("Depot location: " + line);
-                }
-                Depot depot = depots.get(depotIndex);
-                depot.setId(Integer.toString(lineArr[0]));
-                depot.setCoordinates(lineArr[1], lineArr[2]);
-                setExtremeValues(lineArr[1], lineArr[2]);
-
-                for (int i = 0; i < maxVehicles; i++) {
-                    Vehicle vehicle = new Vehicle(depot);
-                    vehicles.add(vehicle);
-                }
-
-                depotIndex++;
-            } else {
-                System.out.println("Oh no, I shouldn't be here!");
-            }
-            index++;
+        if (buffer.remaining() >= 4 && buffer.getInt(buffer.position()) == BINARY_MAGIC) {
+            parseBinary(buffer);
+        } else {
+            parseText(new MapTokenizer(buffer));
         }
 
-        Map.scaleX = calculcateScaling(Map.maximumX, Map.minimumX, Controller.CANVAS_WIDTH);
-        Map.scaleY = calculcateScaling(Map.maximumY, Map.minimumY, Controller.CANVAS_HEIGHT);
+        Map.scaleX = calculcateScaling(Map.maximumX, Map.minimumX, Map.CANVAS_WIDTH);
+        Map.scaleY = calculcateScaling(Map.maximumY, Map.minimumY, Map.CANVAS_HEIGHT);
 
-        if (Controller.verbose) {
+        if (Map.verbose) {
             System.out.println("minimumX: " + Map.minimumX);
             System.out.println("maximumX: " + Map.maximumX);
             System.out.println("scaleX: " + Map.scaleX);
@@ -116,22 +120,224 @@ public class MapParser {
         }
     }
 
-    private void parseResult(String fileName) throws IOException {
-        ClassLoader classLoader = getClass().getClassLoader();
-        File file = new File(classLoader.getResource("resources/solutions/" + fileName + ".res").getFile());
-        BufferedReader br = new BufferedReader(new FileReader(file));
-        String line;
+    /**
+     * Cordeau format, only the first fields of every line are used:
+     * m n t, then t lines D Q, then n customer lines i x y d q, then t depot lines i x y
+     */
+    private void parseText(MapTokenizer tokenizer) throws IOException {
+        int maxVehicles = tokenizer.nextInt(); // m: maximum number of vehicles available in each depot
+        int totalCustomers = tokenizer.nextInt(); // n: total number of customers
+        int depotsCount = tokenizer.nextInt(); // t: number of depots
+        tokenizer.skipLine();
+
+        if (Map.verbose) {
+            System.out.println("Map info: " + maxVehicles + " " + totalCustomers + " " + depotsCount);
+        }
+
+        for (int i = 0; i < depotsCount; i++) { // Depot info: D Q
+            addDepot(tokenizer.nextInt(), tokenizer.nextInt(), maxVehicles);
+            tokenizer.skipLine();
+        }
+
+        for (int i = 0; i < totalCustomers; i++) { // Customer: id, x, y, d, q
+            addCustomer(tokenizer.nextInt(), tokenizer.nextInt(), tokenizer.nextInt(), tokenizer.nextInt(), tokenizer.nextInt());
+            tokenizer.skipLine();
+        }
+
+        for (int i = 0; i < depotsCount; i++) { // Depot coordinates: id, x, y
+            setDepotLocation(i, tokenizer.nextInt(), tokenizer.nextInt(), tokenizer.nextInt());
+            tokenizer.skipLine();
+        }
+    }
+
+    /**
+     * Binary format, big endian ints: magic, version, m n t, t times D Q, n times i x y d q, t times i x y
+     */
+    private void parseBinary(ByteBuffer buffer) throws IOException {
+        buffer.getInt(); // Magic
+        int version = buffer.getInt();
+        if (version != BINARY_VERSION) {
+            throw new IOException("Unsupported binary map version " + version);
+        }
+
+        int maxVehicles = buffer.getInt();
+        int totalCustomers = buffer.getInt();
+        int depotsCount = buffer.getInt();
+
+        if (Map.verbose) {
+            System.out.println("Map info: " + maxVehicles + " " + totalCustomers + " " + depotsCount);
+        }
+
+        for (int i = 0; i < depotsCount; i++) {
+            addDepot(buffer.getInt(), buffer.getInt(), maxVehicles);
+        }
+
+        for (int i = 0; i < totalCustomers; i++) {
+            addCustomer(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        }
+
+        for (int i = 0; i < depotsCount; i++) {
+            setDepotLocation(i, buffer.getInt(), buffer.getInt(), buffer.getInt());
+        }
+    }
+
+    private void addDepot(int maxDuration, int maxLoad, int maxVehicles) {
+        if (Map.verbose) {
+            System.out.println("Depot info: " + maxDuration + " " + maxLoad);
+        }
+        depots.add(new Depot(maxDuration, maxLoad, maxVehicles));
+    }
+
+    private void addCustomer(int id, int x, int y, int timeDemand, int loadDemand) {
+        if (Map.verbose) {
+            System.out.println("Customer info: " + id + " " + x + " " + y + " " + timeDemand + " " + loadDemand);
+        }
+        customers.add(new Customer(Integer.toString(id), x, y, timeDemand, loadDemand));
+        setExtremeValues(x, y);
+    }
+
+    private void setDepotLocation(int depotIndex, int id, int x, int y) throws IOException {
+        if (depotIndex >= depots.size()) {
+            throw new IOException("More depot locations than depots");
+        }
+
+        if (Map.verbose) {
+            System.out.println("Depot location: " + id + " " + x + " " + y);
+        }
+
+        Depot depot = depots.get(depotIndex);
+        depot.setId(Integer.toString(id));
+        depot.setCoordinates(x, y);
+        setExtremeValues(x, y);
+
+        for (int i = 0; i < depot.getMaxVehicles(); i++) {
+            Vehicle vehicle = new Vehicle(depot);
+            vehicles.add(vehicle);
+        }
+    }
+
+    /**
+     * Writes the map in the binary format, read back by memory-mapping the file
+     * @param path
+     * @throws IOException
+     */
+    public void writeBinary(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * (5 + 2 * depots.size() + 5 * customers.size() + 3 * depots.size()));
+        buffer.putInt(BINARY_MAGIC).putInt(BINARY_VERSION);
+        buffer.putInt(depots.isEmpty() ? 0 : depots.get(0).getMaxVehicles()).putInt(customers.size()).putInt(depots.size());
+
+        for (Depot depot : depots) {
+            buffer.putInt((int) depot.getMaxDuration()).putInt(depot.getMaxLoad());
+        }
+
+        for (Customer customer : customers) {
+            buffer.putInt(Integer.parseInt(customer.getId())).putInt(customer.getX()).putInt(customer.getY())
+                    .putInt(customer.getTimeDemand()).putInt(customer.getLoadDemand());
+        }
+
+        for (Depot depot : depots) {
+            buffer.putInt(Integer.parseInt(depot.getId())).putInt(depot.getX()).putInt(depot.getY());
+        }
 
-        if (Controller.verbose) {
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Writes the map in the Cordeau text format, without the visit combination fields the GA does not use
+     * @param path
+     * @throws IOException
+     */
+    public void writeText(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            writer.write((depots.isEmpty() ? 0 : depots.get(0).getMaxVehicles()) + " " + customers.size() + " " + depots.size());
+            writer.newLine();
+
+            for (Depot depot : depots) {
+                writer.write((int) depot.getMaxDuration() + " " + depot.getMaxLoad());
+                writer.newLine();
+            }
+
+            for (Customer customer : customers) {
+                writer.write(customer.getId() + " " + customer.getX() + " " + customer.getY() + " " + customer.getTimeDemand() + " " + customer.getLoadDemand());
+                writer.newLine();
+            }
+
+            for (Depot depot : depots) {
+                writer.write(depot.getId() + " " + depot.getX() + " " + depot.getY());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Memory-maps a map file from the filesystem, or reads a bundled map from the class path, which also works inside a jar
+     * @param fileName
+     * @return
+     * @throws IOException
+     */
+    private static ByteBuffer readMapFile(String fileName) throws IOException {
+        Path path = Paths.get(fileName);
+
+        if (Files.isRegularFile(path)) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        byte[] bytes = readResource("resources/maps/" + fileName);
+        if (bytes == null) {
+            throw new FileNotFoundException("Map not found: " + fileName);
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * @return Bytes of a class path resource, null if it does not exist
+     */
+    private static byte[] readResource(String name) throws IOException {
+        try (InputStream inputStream = MapParser.class.getClassLoader().getResourceAsStream(name)) {
+            return inputStream == null ? null : inputStream.readAllBytes();
+        }
+    }
+
+    /**
+     * Reads the benchmark from the first line of the solution file
+     * Looks for fileName.res next to a map on the filesystem, then for the bundled solution of a map with the same name
+     * The benchmark is 0 if there is no solution file
+     * @param fileName
+     * @throws IOException
+     */
+    private void parseResult(String fileName) throws IOException {
+        if (Map.verbose) {
             System.out.println("========= Parsing result file =========");
         }
 
-        line = br.readLine();
-        if (line  != null) {
-            benchmarkFitness = Double.parseDouble(line);
+        Path path = Paths.get(fileName + ".res");
+        byte[] bytes = Files.isRegularFile(path) ? Files.readAllBytes(path) : null;
+
+        if (bytes == null) {
+            String name = Paths.get(fileName).getFileName().toString();
+            if (name.endsWith(".bin")) {
+                name = name.substring(0, name.length() - ".bin".length());
+            }
+            bytes = readResource("resources/solutions/" + name + ".res");
         }
 
-        if (Controller.verbose) {
+        if (bytes != null) {
+            String text = new String(bytes, StandardCharsets.US_ASCII);
+            int lineEnd = text.indexOf('\n');
+            String firstLine = (lineEnd == -1 ? text : text.substring(0, lineEnd)).trim();
+            if (!firstLine.isEmpty()) {
+                benchmarkFitness = Double.parseDouble(firstLine);
+            }
+        }
+
+        if (Map.verbose) {
             System.out.println("========= END Parsing result file =========");
         }
     }
@@ -150,14 +356,14 @@ public class MapParser {
 
     /**
      * Assigns customers to nearest depot
-     * Based on euclidean distance
+     * Based on euclidean distance from the distance matrix
      */
     private void assignCustomersToNearestDepot() {
         Depot nearestDepot = null;
         for (Customer customer : customers) {
             double minimumDistance = Double.MAX_VALUE;
             for (Depot depot : depots) {
-                double distance = Utils.euclideanDistance(customer.getX(), depot.getX(), customer.getY(), depot.getY());
+                double distance = distanceMatrix.get(customer, depot);
 
                 if (distance < minimumDistance) {
                     minimumDistance = distance;
@@ -182,7 +388,7 @@ public class MapParser {
      */
     private double calculcateScaling(int maximum, int minimum, int canvasSize) {
         int variance = maximum - minimum;
-//        double scaleMargin = (double) Controller.CANVAS_MARGIN / variance;
+//        double scaleMargin = (double) Map.CANVAS_MARGIN / variance;
 //        return (double) (canvasSize / variance) - scaleMargin;
         return (double) canvasSize / (maximum + variance);
     }
@@ -199,6 +405,10 @@ public class MapParser {
         return vehicles;
     }
 
+    public DistanceMatrix getDistanceMatrix() {
+        return distanceMatrix;
+    }
+
     public double getBenchmark()
     {
         return benchmarkFitness;
@@ -0,0 +1,81 @@
+package Map;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the integers of a map file in the Cordeau format straight from its bytes, without regex or String per field
+ * Lines can have more fields than the parser needs, skipLine() drops the rest of a line
+ */
+class MapTokenizer {
+    private final ByteBuffer buffer;
+    private int line = 1; // Current line, for error messages
+
+    MapTokenizer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Skips whitespace, including line breaks, and reads one integer
+     * @return
+     * @throws IOException If the next field is not an integer or the file ends
+     */
+    int nextInt() throws IOException {
+        skipWhitespace();
+
+        if (!buffer.hasRemaining()) {
+            throw new IOException("Unexpected end of map file at line " + line);
+        }
+
+        boolean negative = false;
+        if (buffer.get(buffer.position()) == '-') {
+            negative = true;
+            buffer.get();
+        }
+
+        int value = 0;
+        int digits = 0;
+        while (buffer.hasRemaining()) {
+            byte character = buffer.get(buffer.position());
+            if (character < '0' || character > '9') {
+                break;
+            }
+
+            value = value * 10 + (character - '0');
+            digits++;
+            buffer.get();
+        }
+
+        if (digits == 0) {
+            throw new IOException("Expected an integer at line " + line);
+        }
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Moves to the start of the next line
+     */
+    void skipLine() {
+        while (buffer.hasRemaining()) {
+            if (buffer.get() == '\n') {
+                line++;
+                return;
+            }
+        }
+    }
+
+    private void skipWhitespace() {
+        while (buffer.hasRemaining()) {
+            byte character = buffer.get(buffer.position());
+
+            if (character == '\n') {
+                line++;
+            } else if (character != ' ' && character != '\t' && character != '\r') {
+                return;
+            }
+
+            buffer.get();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package Map;
+
+/**
+ * The k nearest customers of every customer, nearest first
+ * Used by the granular operators to only try insertion positions next to a nearby customer
+ * Indices are DistanceMatrix indices
+ */
+public class NeighbourLists {
+    private final int k;
+    private final int depotsCount;
+    private final int[] neighbours; // neighbours[(customer - depotsCount) * k + i]: i-th nearest customer
+
+    NeighbourLists(int k, int depotsCount, int[] neighbours) {
+        this.k = k;
+        this.depotsCount = depotsCount;
+        this.neighbours = neighbours;
+    }
+
+    /**
+     * @param customer
+     * @param i
+     * @return The i-th nearest customer of customer
+     */
+    public int get(int customer, int i) {
+        return neighbours[(customer - depotsCount) * k + i];
+    }
+
+    /**
+     * @param customer
+     * @param other
+     * @return True if other is one of the k nearest customers of customer
+     */
+    public boolean contains(int customer, int other) {
+        int offset = (customer - depotsCount) * k;
+
+        for (int i = offset; i < offset + k; i++) {
+            if (neighbours[i] == other) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public int getK() {
+        return k;
+    }
+}
@@ -1,8 +1,5 @@
 package MapObjects;
 
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-
 /**
  * Should be visited once by a Vehicle
  * Contained in a Vehicle's route
@@ -19,14 +16,8 @@ public class Customer extends MapObject {
         this.loadDemand = loadDemand;
     }
 
-    /**
-     * Draws customer on canvas
-     * Represented as a gray circle
-     */
-    @Override
-    public void render(GraphicsContext gc) {
-        gc.setStroke(Color.GRAY);
-        gc.strokeOval(getPixelX() - 2, getPixelY() - 2, 5, 5);
+    public String getId() {
+        return id;
     }
 
     public int getLoadDemand() {
@@ -1,9 +1,5 @@
 package MapObjects;
 
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-import javafx.scene.paint.Paint;
-
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,10 +13,9 @@ public class Depot extends MapObject {
     private int maxLoad; // Q: allowed maximum load of a vehicle
     private int maxVehicles; // m: maximum number of vehicles available in each depot
 
-    private static int colorIndex;
-
-    private Color[] colors = {Color.RED, Color.ORANGE, Color.GOLD, Color.GREENYELLOW, Color.GREEN, Color.AQUA, Color.BLUE, Color.INDIGO, Color.VIOLET}; // Possible depot colors
-    private Color color; // Depot color on canvas
+    public static final int COLORS = 9; // Number of depot colors the GUI cycles through
+    private static int nextColorIndex;
+    private int colorIndex; // Depot color on canvas, [0, COLORS>
 
     private List<Customer> customers;
 
@@ -32,26 +27,10 @@ public class Depot extends MapObject {
         this.maxDuration = maxDuration;
         this.maxLoad = maxLoad;
         this.maxVehicles = maxVehicles;
-        this.color = colors[colorIndex]; // Sets color based on static counter
+        this.colorIndex = nextColorIndex; // Sets color based on static counter
 
         // Updates static counter
-        if (colorIndex == colors.length - 1) {
-            colorIndex = 0;
-        } else {
-            colorIndex++;
-        }
-    }
-
-    /**
-     * Draws Depot on canvas
-     * Represented as a colored dot
-     *
-     * @param gc
-     */
-    @Override
-    public void render(GraphicsContext gc) {
-        gc.setFill(color);
-        gc.fillOval(getPixelX() - 5, getPixelY() - 5, 10, 10);
+        nextColorIndex = (nextColorIndex + 1) % COLORS;
     }
 
     public String getId() {
@@ -74,8 +53,8 @@ public class Depot extends MapObject {
         return maxVehicles;
     }
 
-    public Paint getColor() {
-        return color;
+    public int getColorIndex() {
+        return colorIndex;
     }
 
     public List<Customer> getCustomers() {
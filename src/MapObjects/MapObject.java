@@ -1,14 +1,18 @@
 package MapObjects;
 
-import Main.Controller;
+import Map.DistanceMatrix;
 import Map.Map;
 import Utils.Utils;
-import javafx.scene.canvas.GraphicsContext;
 
 public abstract class MapObject {
 
     private int x;
     private int y;
+    private int pixelX; // Position on canvas, set by calculatePixelCoordinates()
+    private int pixelY;
+
+    private DistanceMatrix distanceMatrix; // Set when the map's DistanceMatrix is built
+    private int index = -1; // Dense index in distanceMatrix
 
     /**
      * Sets the x and y position of the game object
@@ -20,35 +24,34 @@ public abstract class MapObject {
         this.y = y;
     }
 
-    /**
-     * Draws object on canvas
-     * @param gc
-     */
-    public abstract void render(GraphicsContext gc);
-
     /**
      * Calculates euclidean distance between two Customers
+     * Looked up in the DistanceMatrix when both objects are part of it
      * @param otherMapObject
      * @return
      */
     public double distance(MapObject otherMapObject) {
+        if (distanceMatrix != null && otherMapObject.distanceMatrix == distanceMatrix) {
+            return distanceMatrix.get(index, otherMapObject.index);
+        }
         return Utils.euclideanDistance(getX(), otherMapObject.getX(), getY(), otherMapObject.getY());
     }
 
     /**
-     * Translate x to pixel on canvas
-     * @return
+     * Translates x and y to pixels on canvas, with the scales of the Map being loaded
+     * Called once per object when the Map is loaded, so rendering does not recalculate them
      */
+    public void calculatePixelCoordinates() {
+        pixelX = (int) ((x - Map.minimumX + (Map.CANVAS_MARGIN / 2)) * Map.scaleX);
+        pixelY = (int) ((y - Map.minimumY + (Map.CANVAS_MARGIN / 2)) * Map.scaleY);
+    }
+
     public int getPixelX() {
-        return (int) ((x - Map.minimumX + (Controller.CANVAS_MARGIN / 2)) * Map.scaleX);
+        return pixelX;
     }
 
-    /**
-     * Translate y to pixel on canvas
-     * @return
-     */
     public int getPixelY() {
-        return (int) ((y - Map.minimumY + (Controller.CANVAS_MARGIN / 2)) * Map.scaleY);
+        return pixelY;
     }
 
     public void setCoordinates(int x, int y) {
@@ -56,6 +59,24 @@ public abstract class MapObject {
         this.y = y;
     }
 
+    /**
+     * Registers the object in a DistanceMatrix
+     * @param distanceMatrix
+     * @param index dense index of the object in distanceMatrix
+     */
+    public void setDistanceMatrix(DistanceMatrix distanceMatrix, int index) {
+        this.distanceMatrix = distanceMatrix;
+        this.index = index;
+    }
+
+    public DistanceMatrix getDistanceMatrix() {
+        return distanceMatrix;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
     public int getX() {
         return x;
     }
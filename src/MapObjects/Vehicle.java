@@ -1,17 +1,18 @@
 package MapObjects;
 
-import Utils.Utils;
-import javafx.scene.canvas.GraphicsContext;
+import Map.DistanceMatrix;
+import Map.NeighbourLists;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 public class Vehicle extends MapObject {
     private Depot startDepot;
     private Depot endDepot;
-    private int currentLoad = 0;
+    private int currentLoad = 0; // Kept up to date by the route mutators
     private List<Customer> route = new ArrayList<>();
+    private double duration; // Cached result of calculateRouteDuration()
+    private boolean durationDirty = true; // Set by the route mutators, cleared when duration is recalculated
 
     public Vehicle(Depot depot) {
         super(depot.getX(), depot.getY());
@@ -40,27 +41,10 @@ public class Vehicle extends MapObject {
     }
 
     /**
-     * Renders the route path
+     * Route must only be changed through the mutators of Vehicle, which keep load and duration up to date
      *
-     * @param gc
+     * @return
      */
-    @Override
-    public void render(GraphicsContext gc) {
-        if (route.size() > 0) {
-            gc.setStroke(startDepot.getColor());
-            gc.strokeLine(startDepot.getPixelX(), startDepot.getPixelY(), route.get(0).getPixelX(), route.get(0).getPixelY());
-
-            for (int i = 0; i < route.size() - 1; i++) {
-                Customer gene = route.get(i);
-                Customer nextGene = route.get(i + 1);
-
-                gc.strokeLine(gene.getPixelX(), gene.getPixelY(), nextGene.getPixelX(), nextGene.getPixelY());
-            }
-
-            gc.strokeLine(route.get(route.size() - 1).getPixelX(), route.get(route.size() - 1).getPixelY(), endDepot.getPixelX(), endDepot.getPixelY());
-        }
-    }
-
     public List<Customer> getRoute() {
         return route;
     }
@@ -79,6 +63,7 @@ public class Vehicle extends MapObject {
 
     public void setEndDepot(Depot depot) {
         endDepot = depot;
+        durationDirty = true;
     }
 
     public int getCurrentLoad() {
@@ -104,113 +89,90 @@ public class Vehicle extends MapObject {
     }
 
     /**
-     * Calculates total distance for route
+     * Calculates total duration for route: travel distance plus service time of every customer
+     * Cached until the route is changed by one of the mutators
      *
      * @return
      */
     public double calculateRouteDuration() {
-        double routeDistance = 0.0;
-
-        if (route.size() == 0) {
-            return routeDistance;
+        if (durationDirty) {
+            duration = walkRouteDuration();
+            durationDirty = false;
         }
 
-        routeDistance += startDepot.distance(route.get(0));
-        for (int i = 0; i < route.size() - 1; i++) {
-            routeDistance += route.get(i).getTimeDemand();
-            routeDistance += route.get(i).distance(route.get(i + 1));
-        }
-        routeDistance += route.get(route.size() - 1).distance(endDepot);
-        return routeDistance;
+        return duration;
     }
 
-    public double calculateRouteDurationIfCustomerAdded(int index, Customer customerToCheck) {
+    private double walkRouteDuration() {
+        double routeDistance = 0.0;
+
         if (route.size() == 0) {
-            return (startDepot.distance(customerToCheck) + customerToCheck.distance(endDepot));
+            return routeDistance;
         }
 
-        double duration = 0.0;
-        List<Customer> copy = new ArrayList<>(route);
-        copy.add(index, customerToCheck);
-
-        duration += startDepot.distance(copy.get(0));
-        duration += copy.get(0).getTimeDemand();
-        for (int i = 0; i < copy.size() - 1; i++) {
-            duration += copy.get(i).distance(copy.get(i + 1));
-            duration += copy.get(i + 1).getTimeDemand();
+        DistanceMatrix distanceMatrix = startDepot.getDistanceMatrix();
+        MapObject previous = startDepot;
+        for (Customer customer : route) {
+            routeDistance += distanceMatrix.get(previous, customer);
+            routeDistance += customer.getTimeDemand();
+            previous = customer;
         }
-        duration += copy.get(copy.size() - 1).distance(endDepot);
-
-        return duration;
-    }
-
-    /**
-     * Mixes n new routes by using route with a different route
-     *
-     * @param otherRoute
-     * @return
-     */
-    public List<Customer>[] crossMutate(List<Customer> otherRoute) {
-        final List<Customer>[] subRoutes = Utils.splitRoute(route);
-        final List<Customer>[] otherSubRoutes = Utils.splitRoute(otherRoute);
-        List<Customer> mutatedRoute = merge(subRoutes[0], otherSubRoutes[1]);
-        List<Customer> mutatedRoute2 = merge(otherSubRoutes[0], subRoutes[1]);
-
-        return new List[]{mutatedRoute, mutatedRoute2};
-    }
-
-    /**
-     * Merges the subRoute from two routes to a new route
-     *
-     * @param subRoute
-     * @param otherSubRoute
-     * @return
-     */
-    private List<Customer> merge(List<Customer> subRoute, List<Customer> otherSubRoute) {
-        List<Customer> mergedRoute = new ArrayList<>(subRoute);
-        mergedRoute.addAll(otherSubRoute);
-        return mergedRoute;
+        routeDistance += distanceMatrix.get(previous, endDepot);
+        return routeDistance;
     }
 
     /**
-     * Swaps two random genes from route
+     * Calculates total distance for route as if customerToCheck was inserted at index
+     * Walks the route in place instead of copying it
      *
+     * @param index
+     * @param customerToCheck
      * @return
      */
-    public List<Customer> swapMutate() {
-        List<Customer> newRoute = new ArrayList<>(route);
+    public double calculateRouteDurationIfCustomerAdded(int index, Customer customerToCheck) {
+        DistanceMatrix distanceMatrix = startDepot.getDistanceMatrix();
 
-        if (newRoute.size() <= 1) {
-            return newRoute;
+        if (route.size() == 0) {
+            return (distanceMatrix.get(startDepot, customerToCheck) + distanceMatrix.get(customerToCheck, endDepot));
         }
 
-        int indexA = 0;
-        int indexB = 0;
+        double duration = 0.0;
+        MapObject previous = startDepot;
+
+        for (int i = 0; i <= route.size(); i++) {
+            Customer customer;
+            if (i == index) {
+                customer = customerToCheck;
+            } else {
+                customer = route.get(i < index ? i : i - 1);
+            }
 
-        while (indexA == indexB) {
-            indexA = Utils.randomIndex(newRoute.size());
-            indexB = Utils.randomIndex(newRoute.size());
+            duration += distanceMatrix.get(previous, customer);
+            duration += customer.getTimeDemand();
+            previous = customer;
         }
+        duration += distanceMatrix.get(previous, endDepot);
 
-        Collections.swap(newRoute, indexA, indexB);
-
-        return newRoute;
+        return duration;
     }
 
     public boolean addCustomerToRoute(Customer customer) {
         route.add(customer);
         currentLoad += customer.getLoadDemand();
+        durationDirty = true;
         return true;
     }
 
     public void addCustomerToRoute(int index, Customer customer) {
         route.add(index, customer);
         currentLoad += customer.getLoadDemand();
+        durationDirty = true;
     }
 
     public void removeCustomerFromRoute(Customer customer) {
         route.remove(customer);
         currentLoad -= customer.getLoadDemand();
+        durationDirty = true;
     }
 
     @Override
@@ -225,9 +187,24 @@ public class Vehicle extends MapObject {
         }
 
         route.addAll(index, otherRoute);
+        durationDirty = true;
     }
 
     public boolean smartAddCustomerToRoute(Customer customerToAdd, boolean force) {
+        return smartAddCustomerToRoute(customerToAdd, force, null);
+    }
+
+    /**
+     * Adds the customer where the route duration increases the least
+     * With neighbourLists only positions next to one of the customer's nearest customers are tried,
+     * all positions are tried if the route has none of them
+     *
+     * @param customerToAdd
+     * @param force
+     * @param neighbourLists
+     * @return
+     */
+    public boolean smartAddCustomerToRoute(Customer customerToAdd, boolean force, NeighbourLists neighbourLists) {
         double minDuration = Double.MAX_VALUE;
         int minIndex = -1;
 
@@ -238,6 +215,10 @@ public class Vehicle extends MapObject {
             return true;
         } else {
             for (int i = 0; i < route.size(); i++) {
+                if (!isCandidatePosition(i, customerToAdd, neighbourLists)) {
+                    continue;
+                }
+
                 double duration = calculateRouteDurationIfCustomerAdded(i, customerToAdd);
 
                 if (duration < minDuration) {
@@ -246,16 +227,36 @@ public class Vehicle extends MapObject {
                 }
             }
 
+            if (minIndex == -1) {
+                return smartAddCustomerToRoute(customerToAdd, force, null);
+            }
+
             addCustomerToRoute(minIndex, customerToAdd);
             return true;
         }
     }
 
+    /**
+     * @param index
+     * @param customer
+     * @param neighbourLists
+     * @return True if the customer inserted at index is next to one of its nearest customers, always true without neighbourLists
+     */
+    public boolean isCandidatePosition(int index, Customer customer, NeighbourLists neighbourLists) {
+        if (neighbourLists == null || route.size() == 0) {
+            return true;
+        }
+
+        return (index > 0 && neighbourLists.contains(customer.getIndex(), route.get(index - 1).getIndex()))
+                || (index < route.size() && neighbourLists.contains(customer.getIndex(), route.get(index).getIndex()));
+    }
+
     public void removeRouteFromRoute(List<Customer> otherRoute) {
         for (Customer c : otherRoute) {
             currentLoad -= c.getLoadDemand();
         }
 
         route.removeAll(otherRoute);
+        durationDirty = true;
     }
 }
@@ -0,0 +1,46 @@
+package Utils;
+
+/**
+ * Set of longs with a fixed capacity, open addressing with linear probing
+ * clear() is O(1): every entry is stamped with the round it was added in, older stamps count as empty
+ * Does not allocate after construction
+ */
+public class LongHashSet {
+    private final long[] keys;
+    private final int[] stamps; // Round per entry, entries of older rounds are empty
+    private final int mask;
+    private int round = 1;
+
+    /**
+     * @param capacity Maximum number of keys added between two clear() calls
+     */
+    public LongHashSet(int capacity) {
+        int length = Integer.highestOneBit(Math.max(capacity, 1)) << 2; // Load factor at most 0.5
+        this.keys = new long[length];
+        this.stamps = new int[length];
+        this.mask = length - 1;
+    }
+
+    /**
+     * @param key
+     * @return False if key was already in the set
+     */
+    public boolean add(long key) {
+        int index = (int) (key ^ (key >>> 32)) & mask;
+
+        while (stamps[index] == round) {
+            if (keys[index] == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        stamps[index] = round;
+        return true;
+    }
+
+    public void clear() {
+        round++;
+    }
+}
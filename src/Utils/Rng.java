@@ -0,0 +1,106 @@
+package Utils;
+
+/**
+ * Seedable random generator (xoroshiro128**)
+ * Not thread safe: every thread draws from its own instance through current()
+ * The whole state is two longs, so it can be copied and restored exactly
+ */
+public class Rng {
+    private static final ThreadLocal<Rng> CURRENT = ThreadLocal.withInitial(() -> new Rng(System.nanoTime() ^ Thread.currentThread().getId()));
+
+    private long s0;
+    private long s1;
+
+    public Rng(long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * @return Random generator of the current thread, used by Utils.randomIndex() and Utils.randomDouble()
+     */
+    public static Rng current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes rng the random generator of the current thread
+     * @param rng
+     */
+    public static void setCurrent(Rng rng) {
+        CURRENT.set(rng);
+    }
+
+    /**
+     * Resets the state from seed, expanded with SplitMix64 so similar seeds give unrelated streams
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        s0 = splitMix64(seed);
+        s1 = splitMix64(seed + 0x9E3779B97F4A7C15L);
+
+        if (s0 == 0 && s1 == 0) { // All zero state would only produce zeros
+            s1 = 1;
+        }
+    }
+
+    private static long splitMix64(long x) {
+        long z = x + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public long nextLong() {
+        long result = Long.rotateLeft(s0 * 5, 7) * 9;
+        long t = s0 ^ s1;
+        s0 = Long.rotateLeft(s0, 24) ^ t ^ (t << 16);
+        s1 = Long.rotateLeft(t, 37);
+        return result;
+    }
+
+    /**
+     * Lemire's multiply-shift with rejection, so every value is exactly equally likely
+     * Rejects with probability below bound / 2^32, almost never for the bounds used here
+     *
+     * @param bound positive
+     * @return A random int [0, bound>
+     */
+    public int nextInt(int bound) {
+        long product = (nextLong() >>> 32) * bound;
+
+        if ((product & 0xFFFFFFFFL) < bound) {
+            long threshold = (0x100000000L - bound) % bound; // 2^32 mod bound
+            while ((product & 0xFFFFFFFFL) < threshold) {
+                product = (nextLong() >>> 32) * bound;
+            }
+        }
+
+        return (int) (product >>> 32);
+    }
+
+    /**
+     * @return A random double [0, 1>
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * @return New generator seeded from this one, an independent stream for another thread or island
+     */
+    public Rng split() {
+        return new Rng(nextLong());
+    }
+
+    /**
+     * @return The state, restored with setState()
+     */
+    public long[] getState() {
+        return new long[]{s0, s1};
+    }
+
+    public void setState(long[] state) {
+        s0 = state[0];
+        s1 = state[1];
+    }
+}
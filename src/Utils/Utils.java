@@ -1,31 +1,39 @@
 package Utils;
 
-import MapObjects.Customer;
-
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 
 public class Utils {
 
     /**
+     * Uses the random generator of the current thread (Rng.current()), so worker threads draw from independent streams
+     *
      * @param limit
      * @return A random int [0, limit>
      */
     public static int randomIndex(int limit) {
-        Random random = new Random();
-        return limit == 0 ? 0 : random.nextInt(limit);
+        return limit == 0 ? 0 : Rng.current().nextInt(limit);
     }
 
     /**
      * @return A random double [0, 1]
      */
     public static double randomDouble() {
-        Random random = new Random();
-        return random.nextDouble();
+        return Rng.current().nextDouble();
+    }
+
+    /**
+     * Shuffles list in place with the random generator of the current thread
+     *
+     * @param list
+     */
+    public static <T> void shuffle(List<T> list) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            Collections.swap(list, i, randomIndex(i + 1));
+        }
     }
 
     /**
@@ -36,7 +44,9 @@ public class Utils {
      * @return Euclidean distance between point1 and point2
      */
     public static double euclideanDistance(int x1, int x2, int y1, int y2) {
-        return Math.sqrt(Math.pow(x1 - x2, 2) + Math.pow(y1 - y2, 2));
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        return Math.sqrt(dx * dx + dy * dy);
     }
 
     /**
@@ -54,52 +64,22 @@ public class Utils {
         return bd.doubleValue();
     }
 
-    public static List<Customer>[] splitRoute(List<Customer> route) {
-        List<Customer> first = new ArrayList<>();
-        List<Customer> second = new ArrayList<>();
-        int size = route.size();
-
-        if (size != 0) {
-            int partitionIndex = Utils.randomIndex(size);
-
-            for (int i = 0; i < route.size(); i++) {
-                if (partitionIndex > i) {
-                    first.add(route.get(i));
-                } else {
-                    second.add(route.get(i));
-                }
-            }
-        }
-        return new List[]{first, second};
-    }
-
-    public static ArrayList<ArrayList<Customer>> splitRoute(List<Customer> route, int k) {
-        ArrayList<ArrayList<Customer>> parts = new ArrayList<>();
-
-        for (int i = 0; i < k; i++) {
-            parts.add(new ArrayList<>());
-        }
-
-        int[] partitionIndices = new int[k - 1];
-
-        for (int i = 0; i < k - 1; i++) {
-            partitionIndices[i] = Utils.randomIndex(route.size());
-        }
-
-        Arrays.sort(partitionIndices);
+    /**
+     * Splits a route into k parts at k - 1 random partition indices
+     * Part i is [partitionIndices[i], partitionIndices[i + 1]>
+     *
+     * @param length number of customers in the route
+     * @param k
+     * @param partitionIndices filled with the k + 1 part boundaries
+     */
+    public static void splitRoute(int length, int k, int[] partitionIndices) {
+        partitionIndices[0] = 0;
 
-        for (int i = 0; i < route.size(); i++) {
-            for (int j = 0; j < partitionIndices.length; j++) {
-                if (i < partitionIndices[j]) {
-                    parts.get(j).add(route.get(i));
-                    break;
-                } else if (i >= partitionIndices[partitionIndices.length - 1]) {
-                    parts.get(parts.size() - 1).add(route.get(i));
-                    break;
-                }
-            }
+        for (int i = 1; i < k; i++) {
+            partitionIndices[i] = Utils.randomIndex(length);
         }
 
-        return parts;
+        partitionIndices[k] = length;
+        Arrays.sort(partitionIndices, 1, k);
     }
 }